@@ -1,8 +1,9 @@
 package org.dhatim.safesql.builder;
 
+import java.util.Objects;
 import org.dhatim.safesql.SafeSqlBuilder;
 
-public abstract class AbstractCondition<L extends Operand, O extends ConditionalOperator, R extends Operand> implements Condition {
+public abstract class AbstractCondition<L extends Operand, O extends ConditionalOperator, R extends Operand> implements Condition, ExpressionRenderer.Composite {
 
     private L left;
     private O operator;
@@ -16,14 +17,43 @@ public abstract class AbstractCondition<L extends Operand, O extends Conditional
     }
     
     @Override
-    public void appendTo(SafeSqlBuilder builder) {
-        //.appendConstant("(")
-        builder.append(left)
-        .append(" ")
-        .append(operator)
-        .append(" ")
-        .append(right);
-        //.appendConstant(")")
+    public final void appendTo(SafeSqlBuilder builder) {
+        ExpressionRenderer.render(this, builder);
+    }
+    
+    @Override
+    public void addParts(ExpressionRenderer renderer) {
+        renderer.add(left)
+        .add(" ")
+        .add(operator)
+        .add(" ")
+        .add(right);
+    }
+    
+    /**
+     * Hashes the operator and the operands which are not composite: a composite operand only contributes its class,
+     * so that hashing a condition does not walk its whole tree. Conditions are still compared in full by
+     * {@link #equals(Object)}.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(getClass(), operator, shallowHash(left), shallowHash(right));
+    }
+    
+    private static int shallowHash(Operand operand) {
+        return operand instanceof ExpressionRenderer.Composite ? operand.getClass().hashCode() : Objects.hashCode(operand);
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        AbstractCondition<?, ?, ?> other = (AbstractCondition<?, ?, ?>) obj;
+        return operator == other.operator && Objects.equals(left, other.left) && Objects.equals(right, other.right);
     }
     
     protected L getLeft() {
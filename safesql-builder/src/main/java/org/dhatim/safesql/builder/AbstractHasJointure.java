@@ -8,6 +8,8 @@ public abstract class AbstractHasJointure implements HasJointure {
 
     private final List<Jointure> jointures = new ArrayList<>();
     
+    private boolean rendered;
+    
     @Override
     public Jointure innerJoin(String schema, String tableName, Alias alias) {
         return join(JointureType.INNER, schema, tableName, alias);
@@ -35,12 +37,30 @@ public abstract class AbstractHasJointure implements HasJointure {
         }
         Jointure jointure = new Jointure(type, schema, tableName, alias);
         jointures.add(index, jointure);
+        modified();
         return jointure;
     }
     
     public Jointure join(JointureType type, String schema, String tableName, Alias alias) {
         Jointure jointure = new Jointure(type, schema, tableName, alias);
         jointures.add(jointure);
+        modified();
+        return jointure;
+    }
+    
+    @Override
+    public Jointure join(JointureType type, SqlQuery query, Alias alias) {
+        return addJointure(new Jointure(type, query, alias, false));
+    }
+    
+    @Override
+    public Jointure joinLateral(JointureType type, SqlQuery query, Alias alias) {
+        return addJointure(new Jointure(type, query, alias, true));
+    }
+    
+    Jointure addJointure(Jointure jointure) {
+        jointures.add(jointure);
+        modified();
         return jointure;
     }
     
@@ -51,5 +71,21 @@ public abstract class AbstractHasJointure implements HasJointure {
     protected boolean hasJointures() {
         return !jointures.isEmpty();
     }
+    
+    /**
+     * Records that this node is rendered, so that its next modification invalidates the renderings including it.
+     * 
+     * @see Rendering
+     */
+    void rendered() {
+        rendered = true;
+    }
+    
+    void modified() {
+        if (rendered) {
+            rendered = false;
+            Rendering.modified();
+        }
+    }
 
 }
@@ -55,5 +55,29 @@ public final class Alias implements SafeSqlizable {
     public void appendTo(SafeSqlBuilder builder) {
         builder.appendIdentifier(name);
     }
+    
+    /**
+     * Tells whether the given SQL contains the name of this alias as an identifier not following a dot. The owner is
+     * not known from the SQL, so an alias of the same name, or a table or column named like this alias, is found too.
+     *
+     * @param sql rendered SQL
+     * @return {@code true} if the SQL may reference this alias
+     */
+    boolean isReferencedBy(SafeSql sql) {
+        String text = sql.asSql();
+        String identifier = toSafeSql().asSql();
+        for (int i = text.indexOf(identifier); i >= 0; i = text.indexOf(identifier, i + 1)) {
+            int end = i + identifier.length();
+            if ((i == 0 || !isIdentifierPart(text.charAt(i - 1)) && text.charAt(i - 1) != '.')
+                    && (end == text.length() || !isIdentifierPart(text.charAt(end)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '"';
+    }
 
 }
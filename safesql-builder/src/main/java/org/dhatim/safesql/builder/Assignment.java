@@ -0,0 +1,59 @@
+package org.dhatim.safesql.builder;
+
+import java.util.Objects;
+import org.dhatim.safesql.SafeSqlBuilder;
+import org.dhatim.safesql.SafeSqlizable;
+
+/**
+ * A <code>column = value</code> element of a <code>SET</code> clause.
+ */
+public final class Assignment implements SafeSqlizable {
+
+    private final String column;
+    private final Operand value;
+
+    public Assignment(String column, Operand value) {
+        this.column = Objects.requireNonNull(column, "Column must be not null");
+        this.value = Objects.requireNonNull(value, "Value must be not null");
+    }
+
+    public static Assignment set(String column, Operand value) {
+        return new Assignment(column, value);
+    }
+
+    /**
+     * Assigns a parameter to a column. Named differently from {@link #set(String, Operand)}, so that passing an
+     * operand typed as an object never binds it as a parameter.
+     *
+     * @param column name of the column
+     * @param value value bound as a parameter
+     * @return <code>column = ?</code>
+     */
+    public static Assignment setValue(String column, Object value) {
+        return new Assignment(column, new Value(value));
+    }
+
+    /**
+     * Assigns to a column the value proposed for insertion, in the <code>DO UPDATE</code> action of an upsert.
+     *
+     * @param column name of the column
+     * @return <code>column = EXCLUDED.column</code>
+     */
+    public static Assignment excluded(String column) {
+        return new Assignment(column, InsertQuery.excluded(column));
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Operand getValue() {
+        return value;
+    }
+
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        builder.appendIdentifier(column).append(" = ").append(value);
+    }
+
+}
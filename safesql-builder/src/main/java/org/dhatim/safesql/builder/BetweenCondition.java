@@ -1,5 +1,6 @@
 package org.dhatim.safesql.builder;
 
+import java.util.Objects;
 import org.dhatim.safesql.SafeSqlBuilder;
 
 public class BetweenCondition extends AbstractCondition<Operand, RelationalOperator, LowHighOperand> {
@@ -15,7 +16,7 @@ public class BetweenCondition extends AbstractCondition<Operand, RelationalOpera
 
 }
 
-class LowHighOperand implements Operand {
+class LowHighOperand implements Operand, ExpressionRenderer.Composite {
 
     private final Operand low;
     private final Operand high;
@@ -26,8 +27,30 @@ class LowHighOperand implements Operand {
     }
     
     @Override
-    public void appendTo(SafeSqlBuilder builder) {
-        builder.append(low).append(" AND ").append(high);
+    public final void appendTo(SafeSqlBuilder builder) {
+        ExpressionRenderer.render(this, builder);
+    }
+    
+    @Override
+    public void addParts(ExpressionRenderer renderer) {
+        renderer.add(low).add(" AND ").add(high);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(low, high);
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof LowHighOperand) {
+            LowHighOperand other = (LowHighOperand) obj;
+            return Objects.equals(low, other.low) && Objects.equals(high, other.high);
+        }
+        return false;
     }
     
     public Operand getHigh() {
@@ -25,6 +25,16 @@ public class BooleanColumn extends Column implements Condition {
         }
     }
 
+    @Override
+    public int hashCode() {
+        return super.hashCode() ^ (not ? 1231 : 1237);
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        return super.equals(obj) && ((BooleanColumn) obj).not == not;
+    }
+    
     @Override
     public Condition negate() {
         return new BooleanColumn(getAlias(), getName(), !not);
@@ -1,8 +1,9 @@
 package org.dhatim.safesql.builder;
 
+import java.util.Objects;
 import org.dhatim.safesql.SafeSqlBuilder;
 
-public class BooleanOperand implements Operand, Condition {
+public class BooleanOperand implements Operand, Condition, ExpressionRenderer.Composite {
 
     private final boolean not;
     private final Expression expression;
@@ -29,11 +30,16 @@ public class BooleanOperand implements Operand, Condition {
     }
     
     @Override
-    public void appendTo(SafeSqlBuilder builder) {
+    public final void appendTo(SafeSqlBuilder builder) {
+        ExpressionRenderer.render(this, builder);
+    }
+    
+    @Override
+    public void addParts(ExpressionRenderer renderer) {
         if (not) {
-            builder.append("NOT ");
+            renderer.add("NOT ");
         }
-        builder.append(expression);
+        renderer.add(expression);
     }
 
     @Override
@@ -48,6 +54,23 @@ public class BooleanOperand implements Operand, Condition {
         return newOp;
     }
     
+    @Override
+    public int hashCode() {
+        return Objects.hash(getClass(), expression, not);
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        BooleanOperand other = (BooleanOperand) obj;
+        return not == other.not && Objects.equals(expression, other.expression);
+    }
+    
     protected BooleanOperand create(Expression expression, boolean not) {
         return new BooleanOperand(expression, not);
     }
@@ -1,57 +1,156 @@
 package org.dhatim.safesql.builder;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Generates unique aliases and identifiers for queries sharing the same namespace.
+ * <p>
+ * A context created with {@link #concurrent()} may be shared by subqueries built in parallel. Names allocated
+ * concurrently with the same suggestion are unique but their order depends on scheduling; tasks that need
+ * reproducible names should allocate them through their own {@link #partition(String) partition}.
+ */
 public class BuilderContext implements AliasOwner {
-    
-    private static final Pattern PATTERN = Pattern.compile("(.*_)([0-9]+)$");
 
-    private final Set<Alias> generatedAliases = new HashSet<>();
-    private final Set<String> generatedIdentifiers = new HashSet<>();
-    
+    /**
+     * Unique names, allocated by suffixing a suggestion with the first free number after its own suffix:
+     * <code>_1</code>, <code>_2</code>... The first number which may be free is kept per prefix, so allocating a name
+     * does not probe all the names already taken with the same prefix.
+     */
+    private static final class Names {
+
+        private static final int MAX_SUFFIX_DIGITS = 9;
+
+        private final boolean concurrent;
+        private final Set<String> used;
+        private final Map<String, AtomicInteger> counters;
+
+        Names(boolean concurrent) {
+            this.concurrent = concurrent;
+            this.used = concurrent ? ConcurrentHashMap.newKeySet() : new HashSet<>();
+            this.counters = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        }
+
+        Names(Names other) {
+            this(other, other.concurrent);
+        }
+
+        Names(Names other, boolean concurrent) {
+            this(concurrent);
+            used.addAll(other.used);
+            other.counters.forEach((prefix, counter) -> counters.put(prefix, new AtomicInteger(counter.get())));
+        }
+
+        String allocate(String suggestion) {
+            if (used.add(suggestion)) {
+                return suggestion;
+            }
+            int suffixStart = suffixStart(suggestion);
+            String prefix;
+            int n;
+            if (suffixStart < 0) {
+                prefix = suggestion + "_";
+                n = 0;
+            } else {
+                prefix = suggestion.substring(0, suffixStart);
+                n = Integer.parseInt(suggestion.substring(suffixStart));
+            }
+            // Every number below the first free one is taken, the numbers after the suggested one are probed otherwise
+            AtomicInteger firstFree = counters.computeIfAbsent(prefix, k -> new AtomicInteger(1));
+            int start = n + 1;
+            int free = firstFree.get();
+            boolean contiguous = start <= free;
+            int k = contiguous ? free : start;
+            while (!used.add(prefix + k)) {
+                k++;
+            }
+            if (contiguous) {
+                int allocated = k;
+                firstFree.updateAndGet(f -> Math.max(f, allocated + 1));
+            }
+            return prefix + k;
+        }
+
+        /**
+         * Returns the start of the numeric suffix of a name like <code>t1_12</code>, or -1 if there is none.
+         */
+        private static int suffixStart(String name) {
+            int i = name.length();
+            while (i > 0 && Character.isDigit(name.charAt(i - 1)) && name.charAt(i - 1) < 128) {
+                i--;
+            }
+            int digits = name.length() - i;
+            if (digits == 0 || digits > MAX_SUFFIX_DIGITS || i == 0 || name.charAt(i - 1) != '_') {
+                return -1;
+            }
+            return i;
+        }
+
+    }
+
+    private final Names aliases;
+    private final Names identifiers;
+    private final String prefix;
+
     public BuilderContext() {
+        this(new Names(false), new Names(false), null);
     }
-    
+
     BuilderContext(BuilderContext other) {
-        this(other.generatedAliases, other.generatedIdentifiers);
+        this(new Names(other.aliases), new Names(other.identifiers), other.prefix);
+    }
+
+    BuilderContext(BuilderContext other, boolean concurrent) {
+        this(new Names(other.aliases, concurrent), new Names(other.identifiers, concurrent), other.prefix);
+    }
+
+    private BuilderContext(Names aliases, Names identifiers, String prefix) {
+        this.aliases = aliases;
+        this.identifiers = identifiers;
+        this.prefix = prefix;
     }
-    
-    private BuilderContext(Set<Alias> generatedAliases, Set<String> generatedIdentifiers) {
-        this.generatedAliases.addAll(generatedAliases);
-        this.generatedIdentifiers.addAll(generatedIdentifiers);
+
+    /**
+     * Creates a context which may be used by several threads at the same time.
+     * 
+     * @return a new thread-safe context
+     */
+    public static BuilderContext concurrent() {
+        return new BuilderContext(new Names(true), new Names(true), null);
+    }
+
+    public boolean isConcurrent() {
+        return aliases.concurrent;
+    }
+
+    /**
+     * Returns a view of this context which prepends the given prefix to every suggestion. Names stay unique across
+     * the whole context, and a partition used by a single task allocates the same names whatever the other tasks do,
+     * as long as no other partition uses the same prefix.
+     * 
+     * @param partitionPrefix prefix of the names allocated by the partition, like <code>"u3_"</code>
+     * @return a view of this context sharing its namespace
+     */
+    public BuilderContext partition(String partitionPrefix) {
+        Objects.requireNonNull(partitionPrefix, "Partition prefix must be not null");
+        return new BuilderContext(aliases, identifiers, prefix == null ? partitionPrefix : prefix + partitionPrefix);
     }
-    
+
     public Alias generate(String suggestion) {
-        Alias suggestedAlias = new Alias(this, suggestion);
-        while (generatedAliases.contains(suggestedAlias)) {
-            Matcher matcher = PATTERN.matcher(suggestedAlias.getName());
-            if (matcher.matches()) {
-                int n = Integer.parseInt(matcher.group(2));
-                suggestedAlias = new Alias(this, matcher.group(1) + (n + 1));
-            } else {
-                suggestedAlias = new Alias(this, suggestedAlias.getName() + "_1");
-            }
-        }
-        generatedAliases.add(suggestedAlias);
-        return suggestedAlias;
+        return new Alias(this, aliases.allocate(prefixed(suggestion)));
     }
-    
+
     public String generateIdentifier(String suggestion) {
-        String identifier = suggestion;
-        while (generatedIdentifiers.contains(identifier)) {
-            Matcher matcher = PATTERN.matcher(identifier);
-            if (matcher.matches()) {
-                int n = Integer.parseInt(matcher.group(2));
-                identifier = matcher.group(1) + (n + 1);
-            } else {
-                identifier = suggestion + "_1";
-            }
-        }
-        generatedIdentifiers.add(identifier);
-        return identifier;
+        return identifiers.allocate(prefixed(suggestion));
     }
-    
+
+    private String prefixed(String suggestion) {
+        return prefix == null ? suggestion : prefix + suggestion;
+    }
+
 }
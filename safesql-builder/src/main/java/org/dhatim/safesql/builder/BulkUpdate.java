@@ -0,0 +1,144 @@
+package org.dhatim.safesql.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Updates many rows with different values per row, in as few statements as the parameter limit allows.
+ * <p>
+ * Each statement joins the table to a <code>VALUES</code> list holding the keys and the new values of a chunk of
+ * rows:
+ * <pre>
+ * UPDATE t SET c = v.c FROM (VALUES (?::bigint, ?::text), (?, ?)) v (id, c) WHERE t.id = v.id
+ * </pre>
+ * The values of the first row are cast to the column types, so that the database knows the types of the whole
+ * list.
+ */
+public final class BulkUpdate {
+
+    /**
+     * Maximum number of parameters of a statement, as the protocol of PostgreSQL counts them on 16 bits.
+     */
+    public static final int DEFAULT_MAX_PARAMETERS = 32767;
+
+    private final String schema;
+    private final String tableName;
+
+    private final List<String> keys = new ArrayList<>();
+    private final List<String> columns = new ArrayList<>();
+    private final List<String> types = new ArrayList<>();
+    private final List<Object[]> rows = new ArrayList<>();
+
+    private int maxParameters = DEFAULT_MAX_PARAMETERS;
+
+    public BulkUpdate(String schema, String tableName) {
+        this.schema = schema;
+        this.tableName = tableName;
+    }
+
+    public BulkUpdate(String tableName) {
+        this(null, tableName);
+    }
+
+    /**
+     * Adds a column identifying the rows to update. Keys must be declared before the updated columns.
+     *
+     * @param column name of the column
+     * @param sqlType SQL type of the column, or {@code null} to leave the values untyped
+     * @return this update
+     */
+    public BulkUpdate key(String column, String sqlType) {
+        if (!columns.isEmpty()) {
+            throw new BuilderException("Keys must be declared before the updated columns");
+        }
+        keys.add(column);
+        types.add(sqlType);
+        return this;
+    }
+
+    /**
+     * Adds an updated column.
+     *
+     * @param column name of the column
+     * @param sqlType SQL type of the column, or {@code null} to leave the values untyped
+     * @return this update
+     */
+    public BulkUpdate column(String column, String sqlType) {
+        columns.add(column);
+        types.add(sqlType);
+        return this;
+    }
+
+    public BulkUpdate maxParameters(int maxParameters) {
+        if (maxParameters < 1) {
+            throw new IllegalArgumentException("Maximum number of parameters must be positive");
+        }
+        this.maxParameters = maxParameters;
+        return this;
+    }
+
+    /**
+     * Adds a row to update.
+     *
+     * @param values the values of the keys, then the values of the updated columns, in declaration order
+     * @return this update
+     */
+    public BulkUpdate add(Object... values) {
+        if (values.length != types.size()) {
+            throw new IllegalArgumentException("Expected " + types.size() + " values, got " + values.length);
+        }
+        rows.add(values.clone());
+        return this;
+    }
+
+    public BulkUpdate addAll(Stream<Object[]> rows) {
+        rows.forEachOrdered(this::add);
+        return this;
+    }
+
+    /**
+     * Returns the statements updating all the rows, each one with at most the maximum number of parameters.
+     *
+     * @return the statements, empty if there is no row
+     */
+    public List<UpdateQuery> toQueries() {
+        if (keys.isEmpty() || columns.isEmpty()) {
+            throw new BuilderException("Bulk update must have at least one key and one updated column");
+        }
+        int chunkSize = Math.max(1, maxParameters / types.size());
+        List<UpdateQuery> queries = new ArrayList<>((rows.size() + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            queries.add(toQuery(rows.subList(from, Math.min(from + chunkSize, rows.size()))));
+        }
+        return queries;
+    }
+
+    private UpdateQuery toQuery(List<Object[]> chunk) {
+        BuilderContext context = new BuilderContext();
+        Alias target = context.generate("t");
+        Alias values = context.generate("v");
+        UpdateQuery query = new UpdateQuery(context, schema, tableName, target);
+        for (String column : columns) {
+            query.set(column, new Column(values, column));
+        }
+        List<Row> valueRows = new ArrayList<>(chunk.size());
+        for (Object[] row : chunk) {
+            List<Operand> operands = new ArrayList<>(row.length);
+            for (int i = 0; i < row.length; i++) {
+                Operand value = new Value(row[i]);
+                String sqlType = types.get(i);
+                operands.add(valueRows.isEmpty() && sqlType != null ? new Cast(value, sqlType) : value);
+            }
+            valueRows.add(new Row(operands));
+        }
+        List<String> names = Stream.concat(keys.stream(), columns.stream()).collect(Collectors.toList());
+        query.from(new Values(valueRows), values, names);
+        for (String key : keys) {
+            query.and(Condition.eq(new Column(target, key), new Column(values, key)));
+        }
+        return query;
+    }
+
+}
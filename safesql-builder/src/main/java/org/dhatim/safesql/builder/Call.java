@@ -3,7 +3,7 @@ package org.dhatim.safesql.builder;
 import java.util.Arrays;
 import org.dhatim.safesql.SafeSqlBuilder;
 
-public class Call implements Operand {
+public class Call implements Operand, ExpressionRenderer.Composite {
 
     private final String functionName;
     private final Operand[] arguments;
@@ -22,10 +22,15 @@ public class Call implements Operand {
     }
 
     @Override
-    public void appendTo(SafeSqlBuilder builder) {
-        builder.append(functionName).append("(");
-        builder.appendJoined(", ", Arrays.asList(arguments));
-        builder.append(")");
+    public final void appendTo(SafeSqlBuilder builder) {
+        ExpressionRenderer.render(this, builder);
+    }
+    
+    @Override
+    public void addParts(ExpressionRenderer renderer) {
+        renderer.add(functionName).add("(");
+        renderer.addJoined(", ", Arrays.asList(arguments));
+        renderer.add(")");
     }
 
     @Override
@@ -6,7 +6,7 @@ import org.dhatim.safesql.SafeSqlBuilder;
 import org.dhatim.safesql.SafeSqlUtils;
 import org.dhatim.safesql.SafeSqlizable;
 
-public abstract class Case<T extends SafeSqlizable> implements Operand {
+public abstract class Case<T extends SafeSqlizable> implements Operand, FragmentCache.Cacheable {
     
     public static class ConditionalCase extends Case<Condition> {
 
@@ -51,22 +51,39 @@ public abstract class Case<T extends SafeSqlizable> implements Operand {
     
     private final ArrayList<When<T>> whens = new ArrayList<>();
     private Operand elseOperand;
+    
+    private boolean rendered;
 
     private Case() {
     }
 
     public void add(T expression, Operand result) {
         whens.add(new When<T>(expression, result));
+        modified();
     }
     
     public void setElse(Operand operand) {
         this.elseOperand = operand;
+        modified();
+    }
+    
+    private void modified() {
+        if (rendered) {
+            rendered = false;
+            Rendering.modified();
+        }
     }
     
     protected abstract SafeSql getCaseClause();
     
     @Override
     public void appendTo(SafeSqlBuilder builder) {
+        rendered = true;
+        FragmentCache.append(builder, this);
+    }
+    
+    @Override
+    public void appendUncached(SafeSqlBuilder builder) {
         builder.append(getCaseClause()).append(" ");
         builder.appendJoined(" ", whens).append(" ");
         if (elseOperand != null) {
@@ -2,7 +2,7 @@ package org.dhatim.safesql.builder;
 
 import org.dhatim.safesql.SafeSqlBuilder;
 
-public class Cast implements Operand {
+public class Cast implements Operand, ExpressionRenderer.Composite {
 
     private final Operand operand;
     private final String sqlType;
@@ -13,10 +13,15 @@ public class Cast implements Operand {
     }
 
     @Override
-    public void appendTo(SafeSqlBuilder builder) {
-        builder.append(operand)
-                .append("::")
-                .append(sqlType);
+    public final void appendTo(SafeSqlBuilder builder) {
+        ExpressionRenderer.render(this, builder);
+    }
+    
+    @Override
+    public void addParts(ExpressionRenderer renderer) {
+        renderer.add(operand)
+                .add("::")
+                .add(sqlType);
     }
 
     public Operand getOperand() {
@@ -48,7 +48,11 @@ public class Column implements Operand {
         if (alias != null) {
             builder.append(alias).append(".");
         }
-        builder.appendIdentifier(name);
+        if (ALL.equals(name)) {
+            builder.append(ALL);
+        } else {
+            builder.appendIdentifier(name);
+        }
     }
     
     @Override
@@ -3,38 +3,75 @@ package org.dhatim.safesql.builder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import org.dhatim.safesql.SafeSql;
 import org.dhatim.safesql.SafeSqlBuilder;
 import org.dhatim.safesql.SafeSqlizable;
 
 public class CommonTableExpression implements SafeSqlizable {
 
     private final String name;
-    private final SqlQuery query;
+    private final WithQuery query;
     private final List<String> columnNames;
+    private final boolean materialized;
+    
+    private Rendering rendering;
 
-    public CommonTableExpression(String name, SqlQuery query) {
+    public CommonTableExpression(String name, WithQuery query) {
         this(name, Collections.emptyList(), query);
     }
     
-    public CommonTableExpression(String name, List<String> columnNames, SqlQuery query) {
+    public CommonTableExpression(String name, List<String> columnNames, WithQuery query) {
+        this(name, columnNames, query, false);
+    }
+    
+    /**
+     * @param name name of the expression
+     * @param columnNames names of the columns, or an empty list
+     * @param query body of the expression
+     * @param materialized whether the expression is rendered <code>AS MATERIALIZED</code>, so that it is evaluated
+     * once even if the planner could inline it (PostgreSQL 12 or later)
+     */
+    public CommonTableExpression(String name, List<String> columnNames, WithQuery query, boolean materialized) {
         this.name = name;
         this.query = query;
         this.columnNames = new ArrayList<>(columnNames);
+        this.materialized = materialized;
     }
     
     public String getName() {
         return name;
     }
     
+    public boolean isMaterialized() {
+        return materialized;
+    }
+    
     @Override
-    public void appendTo(SafeSqlBuilder builder) {
+    public SafeSql toSafeSql() {
+        boolean cached = FragmentCache.usesNodeCaches();
+        long stamp = Rendering.stamp();
+        Rendering r = rendering;
+        if (cached && r != null && r.isValid(stamp)) {
+            return r.getResult();
+        }
+        SafeSqlBuilder builder = new SafeSqlBuilder();
         builder.appendIdentifier(name);
         if (!columnNames.isEmpty()) {
             builder.appendJoined(", ", "(", ")", columnNames.stream().map(Identifier::new));
         }
-        builder.append(" AS (")
+        builder.append(materialized ? " AS MATERIALIZED (" : " AS (")
                 .append(query)
                 .append(")");
+        SafeSql result = builder.toSafeSql();
+        if (cached) {
+            rendering = new Rendering(stamp, result);
+        }
+        return result;
+    }
+    
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        builder.append(toSafeSql());
     }
     
 }
@@ -0,0 +1,112 @@
+package org.dhatim.safesql.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.dhatim.safesql.SafeSql;
+import org.dhatim.safesql.SafeSqlizable;
+
+/**
+ * A query rendered once, whose named slots created by {@link Value#slot(String)} are bound for each execution.
+ * <p>
+ * The SQL text is the same instance for every binding, which makes it a good fit for server-side prepared
+ * statements. Instances are immutable and may be shared between threads.
+ */
+public final class CompiledQuery {
+
+    private static class BoundSql implements SafeSql {
+
+        private final String sql;
+        private final Object[] parameters;
+
+        private BoundSql(String sql, Object[] parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public String asSql() {
+            return sql;
+        }
+
+        @Override
+        public Object[] getParameters() {
+            return parameters.clone();
+        }
+
+    }
+
+    private final String sql;
+    private final Object[] parameters;
+    private final List<String> slotNames;
+    private final int[][] positions;
+
+    private CompiledQuery(SafeSql sql) {
+        this.sql = sql.asSql();
+        this.parameters = sql.getParameters();
+        Map<String, List<Integer>> slots = new LinkedHashMap<>();
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i] instanceof Slot) {
+                slots.computeIfAbsent(((Slot) parameters[i]).getName(), name -> new ArrayList<>()).add(i);
+                parameters[i] = null;
+            }
+        }
+        this.slotNames = Collections.unmodifiableList(new ArrayList<>(slots.keySet()));
+        this.positions = slots.values().stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Returns the names of the slots, in order of first appearance in the query.
+     *
+     * @return the slot names
+     */
+    public List<String> getSlotNames() {
+        return slotNames;
+    }
+
+    public SafeSql bind(Map<String, ?> values) {
+        Object[] bound = parameters.clone();
+        for (int i = 0; i < positions.length; i++) {
+            String name = slotNames.get(i);
+            if (!values.containsKey(name)) {
+                throw new BuilderException("No value for slot " + name);
+            }
+            fill(bound, positions[i], values.get(name));
+        }
+        return new BoundSql(sql, bound);
+    }
+
+    /**
+     * Binds the slots by position, in the order of {@link #getSlotNames()}.
+     *
+     * @param values one value for each slot
+     * @return the query with all parameters
+     */
+    public SafeSql bind(Object... values) {
+        if (values.length != positions.length) {
+            throw new BuilderException("Expected " + positions.length + " slot values but got " + values.length);
+        }
+        Object[] bound = parameters.clone();
+        for (int i = 0; i < positions.length; i++) {
+            fill(bound, positions[i], values[i]);
+        }
+        return new BoundSql(sql, bound);
+    }
+
+    private static void fill(Object[] parameters, int[] positions, Object value) {
+        for (int position : positions) {
+            parameters[position] = value;
+        }
+    }
+
+    public static CompiledQuery of(SafeSqlizable query) {
+        return new CompiledQuery(query.toSafeSql());
+    }
+
+}
@@ -0,0 +1,163 @@
+package org.dhatim.safesql.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.dhatim.safesql.SafeSqlBuilder;
+import org.dhatim.safesql.builder.SelectQuery.OrderElement;
+
+/**
+ * Queries combined with <code>UNION</code>, <code>UNION ALL</code>, <code>INTERSECT</code> or <code>EXCEPT</code>.
+ * <p>
+ * Each branch is rendered in parentheses, so that branches may have their own order and limit. Branches given as a
+ * stream are rendered one after the other directly into the builder; a query built from a single stream can only be
+ * rendered once, use a supplier of streams to render it again.
+ */
+public class CompoundQuery implements SqlQuery {
+
+    private static final class Parenthesized implements SqlQuery {
+
+        private final SqlQuery branch;
+
+        Parenthesized(SqlQuery branch) {
+            this.branch = branch;
+        }
+
+        /**
+         * Estimates the cost of rendering the branch, a query already rendered being cheap.
+         */
+        int cost() {
+            return branch instanceof SelectQuery || branch instanceof CompoundQuery || branch instanceof ImmutableSelectQuery ? ParallelRenderer.QUERY_COST : 1;
+        }
+
+        @Override
+        public void appendTo(SafeSqlBuilder builder) {
+            builder.append('(').append(branch).append(')');
+        }
+
+    }
+
+    private final SetOperator operator;
+    private final List<SqlQuery> branches;
+    private final Supplier<? extends Stream<? extends SqlQuery>> streamedBranches;
+
+    private final List<OrderElement> orders = new ArrayList<>();
+    private boolean disjoint;
+    private Integer limit;
+
+    private boolean rendered;
+
+    public CompoundQuery(SetOperator operator, List<? extends SqlQuery> branches) {
+        this.operator = operator;
+        this.branches = new ArrayList<>(branches);
+        this.streamedBranches = null;
+    }
+
+    public CompoundQuery(SetOperator operator, Supplier<? extends Stream<? extends SqlQuery>> branches) {
+        this.operator = operator;
+        this.branches = null;
+        this.streamedBranches = branches;
+    }
+
+    public CompoundQuery(SetOperator operator, Stream<? extends SqlQuery> branches) {
+        this(operator, () -> branches);
+    }
+
+    public static CompoundQuery union(SqlQuery... branches) {
+        return new CompoundQuery(SetOperator.UNION, Arrays.asList(branches));
+    }
+
+    public static CompoundQuery unionAll(SqlQuery... branches) {
+        return new CompoundQuery(SetOperator.UNION_ALL, Arrays.asList(branches));
+    }
+
+    public static CompoundQuery intersect(SqlQuery... branches) {
+        return new CompoundQuery(SetOperator.INTERSECT, Arrays.asList(branches));
+    }
+
+    public static CompoundQuery except(SqlQuery... branches) {
+        return new CompoundQuery(SetOperator.EXCEPT, Arrays.asList(branches));
+    }
+
+    public SetOperator getOperator() {
+        return operator;
+    }
+
+    /**
+     * Declares that no row is returned by two branches, so a <code>UNION</code> is rendered as
+     * <code>UNION ALL</code> and the database does not sort or hash the rows to remove duplicates.
+     *
+     * @return this query
+     */
+    public CompoundQuery disjoint() {
+        this.disjoint = true;
+        modified();
+        return this;
+    }
+
+    /**
+     * Orders the combined rows by an output column; branches have no alias in the scope of this clause.
+     *
+     * @param column name of the output column
+     * @param order direction of the order
+     * @return this query
+     */
+    public CompoundQuery orderBy(String column, Order order) {
+        orders.add(new OrderElement(null, column, order));
+        modified();
+        return this;
+    }
+
+    public CompoundQuery limit(int limit) {
+        this.limit = limit;
+        modified();
+        return this;
+    }
+
+    public CompoundQuery noLimit() {
+        this.limit = null;
+        modified();
+        return this;
+    }
+
+    private void modified() {
+        if (rendered) {
+            rendered = false;
+            Rendering.modified();
+        }
+    }
+
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        rendered = true;
+        String delimiter = (disjoint && operator == SetOperator.UNION ? SetOperator.UNION_ALL : operator).getSpacedSql();
+        if (branches != null) {
+            if (branches.isEmpty()) {
+                throw new BuilderException("Compound query must have at least one branch");
+            }
+            List<Parenthesized> parenthesized = branches.stream().map(Parenthesized::new).collect(Collectors.toList());
+            ParallelRenderer.appendJoined(builder, delimiter, parenthesized, Parenthesized::cost);
+        } else {
+            Iterator<? extends SqlQuery> it = streamedBranches.get().iterator();
+            if (!it.hasNext()) {
+                throw new BuilderException("Compound query must have at least one branch");
+            }
+            new Parenthesized(it.next()).appendTo(builder);
+            while (it.hasNext()) {
+                builder.append(delimiter);
+                new Parenthesized(it.next()).appendTo(builder);
+            }
+        }
+        if (!orders.isEmpty()) {
+            builder.append(" ORDER BY ").appendJoined(", ", orders);
+        }
+        if (limit != null) {
+            builder.append(" LIMIT ").append(limit);
+        }
+    }
+
+}
@@ -2,7 +2,7 @@ package org.dhatim.safesql.builder;
 
 import org.dhatim.safesql.SafeSqlBuilder;
 
-public class Compute implements Operand {
+public class Compute implements Operand, ExpressionRenderer.Composite {
 
     private final Operand left;
     private final Operand right;
@@ -27,14 +27,19 @@ public class Compute implements Operand {
     }
     
     @Override
-    public void appendTo(SafeSqlBuilder builder) {
-        builder.append("(")
-            .append(left)
-            .append(" ")
-            .append(operator)
-            .append(" ")
-            .append(right)
-            .append(")");
+    public final void appendTo(SafeSqlBuilder builder) {
+        ExpressionRenderer.render(this, builder);
+    }
+    
+    @Override
+    public void addParts(ExpressionRenderer renderer) {
+        renderer.add("(")
+            .add(left)
+            .add(" ")
+            .add(operator)
+            .add(" ")
+            .add(right)
+            .add(")");
     }
     
     public static Compute add(Operand op1, Operand op2) {
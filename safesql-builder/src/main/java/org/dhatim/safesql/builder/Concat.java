@@ -4,23 +4,37 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import org.dhatim.safesql.SafeSqlBuilder;
 
-public class Concat implements Operand {
+public class Concat implements Operand, ExpressionRenderer.Composite {
     
     private final ArrayList<Operand> list = new ArrayList<>();
 
     public Concat(Operand left, Operand right) {
-        list.add(left);
-        list.add(right);
+        add(left);
+        add(right);
     }
     
     public Concat(Operand left, Operand right, Operand... others) {
         this(left, right);
-        list.addAll(Arrays.asList(others));
+        Arrays.stream(others).forEach(this::add);
+    }
+    
+    private void add(Operand operand) {
+        // Concatenation is associative: nested concatenations are flattened to keep the tree shallow
+        if (operand instanceof Concat) {
+            list.addAll(((Concat) operand).list);
+        } else {
+            list.add(operand);
+        }
+    }
+    
+    @Override
+    public final void appendTo(SafeSqlBuilder builder) {
+        ExpressionRenderer.render(this, builder);
     }
     
     @Override
-    public void appendTo(SafeSqlBuilder builder) {
-        builder.appendJoined(" || ", list);
+    public void addParts(ExpressionRenderer renderer) {
+        renderer.addJoined(" || ", list);
     }
 
 }
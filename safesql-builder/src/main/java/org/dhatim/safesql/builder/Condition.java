@@ -1,6 +1,10 @@
 package org.dhatim.safesql.builder;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 public interface Condition extends Expression {
     
@@ -18,6 +22,16 @@ public interface Condition extends Expression {
         return ConditionGroup.create(LogicalOperator.AND, left, right);
     }
     
+    /**
+     * Joins conditions with AND, in a single flat group.
+     * 
+     * @param conditions conditions to join
+     * @return the group, the condition itself if there is only one, or TRUE if there is none
+     */
+    public static Condition and(Collection<? extends Condition> conditions) {
+        return ConditionGroup.builder(LogicalOperator.AND, conditions.size()).addAll(conditions).build();
+    }
+    
     public static Condition or(Condition left, Condition right, Condition... others) {
         return ConditionGroup.create(LogicalOperator.OR, left, right, others);
     }
@@ -25,6 +39,16 @@ public interface Condition extends Expression {
     public static Condition or(Condition left, Condition right) {
         return ConditionGroup.create(LogicalOperator.OR, left, right);
     }
+    
+    /**
+     * Joins conditions with OR, in a single flat group.
+     * 
+     * @param conditions conditions to join
+     * @return the group, the condition itself if there is only one, or FALSE if there is none
+     */
+    public static Condition or(Collection<? extends Condition> conditions) {
+        return ConditionGroup.builder(LogicalOperator.OR, conditions.size()).addAll(conditions).build();
+    }
 
     /**
      * Create a equals condition '='
@@ -55,6 +79,31 @@ public interface Condition extends Expression {
         return new InCondition(left, true, Arrays.asList(values));
     }
     
+    /**
+     * Tests whether a tuple of columns is one of the given keys, with one array parameter per column whatever the
+     * number of keys: <code>(a, b) IN (SELECT * FROM unnest(?::int8[], ?::text[]))</code>.
+     *
+     * @param columns columns of the tuple
+     * @param sqlTypes SQL types of the columns, like <code>int8</code>
+     * @param keys keys, with one value per column
+     * @return new tuple {@code Condition}, or FALSE if there is no key
+     */
+    public static Condition inTuples(List<Column> columns, List<String> sqlTypes, Stream<Object[]> keys) {
+        return TupleInCondition.of(columns, Objects.requireNonNull(sqlTypes, "Types must be not null"), keys);
+    }
+
+    /**
+     * Tests whether a tuple of columns is one of the given keys, listed with one parameter per value:
+     * <code>(a, b) IN (VALUES (?, ?), (?, ?))</code>.
+     *
+     * @param columns columns of the tuple
+     * @param keys keys, with one value per column
+     * @return new tuple {@code Condition}, or FALSE if there is no key
+     */
+    public static Condition inTuples(List<Column> columns, Stream<Object[]> keys) {
+        return TupleInCondition.of(columns, null, keys);
+    }
+
     public static Condition isNotNull(Operand operand) {
         return NullCondition.isNot(operand);
     }
@@ -1,17 +1,64 @@
 package org.dhatim.safesql.builder;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
-import org.dhatim.safesql.SafeSql;
 import org.dhatim.safesql.SafeSqlBuilder;
 
-public class ConditionGroup implements Condition {
+public class ConditionGroup implements Condition, ExpressionRenderer.Composite {
+    
+    /**
+     * Collects many conditions into a single group, flattening nested groups with the same operator as they are
+     * added.
+     */
+    public static final class Builder {
+        
+        private final LogicalOperator operator;
+        private ArrayList<Condition> conditions;
+        
+        private Builder(LogicalOperator operator, int expectedSize) {
+            this.operator = operator;
+            this.conditions = new ArrayList<>(expectedSize);
+        }
+        
+        public Builder add(Condition condition) {
+            addFlattened(conditions, operator, condition);
+            return this;
+        }
+        
+        public Builder addAll(Collection<? extends Condition> conditions) {
+            conditions.forEach(this::add);
+            return this;
+        }
+        
+        /**
+         * Returns the collected conditions. The builder must not be used afterwards.
+         * 
+         * @return the group, the single condition added, or the neutral value of the operator if nothing was added
+         */
+        public Condition build() {
+            ArrayList<Condition> result = conditions;
+            conditions = null;
+            if (result.isEmpty()) {
+                return new BooleanValue(operator == LogicalOperator.AND);
+            } else if (result.size() == 1) {
+                return result.get(0);
+            } else {
+                return new ConditionGroup(operator, result);
+            }
+        }
+        
+    }
     
     private final List<Condition> conditions;
     private final LogicalOperator operator;
     
+    private boolean rendered;
+    
     ConditionGroup(LogicalOperator operator) {
         this.conditions = new ArrayList<>();
         this.operator = operator;
@@ -21,16 +68,27 @@ public class ConditionGroup implements Condition {
         if (conditions.size() < 2) {
             throw new IllegalArgumentException("Conditions array must be 2 elements or more");
         }
-        this.conditions = new ArrayList<>(conditions);
+        this.conditions = new ArrayList<>(conditions.size());
+        this.operator = operator;
+        conditions.forEach(this::add);
+    }
+    
+    private ConditionGroup(LogicalOperator operator, ArrayList<Condition> flattenedConditions) {
+        this.conditions = flattenedConditions;
         this.operator = operator;
     }
 
     @Override
-    public void appendTo(SafeSqlBuilder builder) {
-        SafeSql spacedOperator = new SafeSqlBuilder().append(' ').append(operator).append(' ').toSafeSql();
-        builder.append("(")
-                .appendJoined(spacedOperator, conditions)
-                .append(")");
+    public final void appendTo(SafeSqlBuilder builder) {
+        ExpressionRenderer.render(this, builder);
+    }
+    
+    @Override
+    public void addParts(ExpressionRenderer renderer) {
+        rendered = true;
+        renderer.add("(")
+                .addJoined(operator.getSpacedSql(), conditions)
+                .add(")");
     }
     
     @Override
@@ -38,7 +96,98 @@ public class ConditionGroup implements Condition {
         return new ConditionGroup(conditions.stream().map(Condition::negate).collect(Collectors.toList()), operator == LogicalOperator.AND ? LogicalOperator.OR : LogicalOperator.AND);
     }
     
+    @Override
+    public int hashCode() {
+        // Not cached, since a nested group may be modified after being added
+        return hash(this, new IdentityHashMap<>());
+    }
+    
+    /**
+     * Hashes a group like {@link #hashCode()}, with an explicit stack since condition trees can be very deep.
+     * 
+     * @param group group to hash
+     * @param hashes hashes of the groups already known, completed with the hashes of all the nested groups
+     * @return the hash of the group
+     */
+    static int hash(ConditionGroup group, Map<ConditionGroup, Integer> hashes) {
+        ArrayDeque<ConditionGroup> stack = new ArrayDeque<>();
+        stack.push(group);
+        while (!stack.isEmpty()) {
+            ConditionGroup current = stack.peek();
+            if (hashes.containsKey(current)) {
+                stack.pop();
+                continue;
+            }
+            boolean ready = true;
+            for (Condition condition : current.conditions) {
+                if (condition instanceof ConditionGroup && !hashes.containsKey(condition)) {
+                    stack.push((ConditionGroup) condition);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                stack.pop();
+                // Same as the hash of the list of conditions
+                int h = 1;
+                for (Condition condition : current.conditions) {
+                    h = 31 * h + (condition instanceof ConditionGroup ? hashes.get(condition) : condition.hashCode());
+                }
+                hashes.put(current, 31 * current.operator.hashCode() + h);
+            }
+        }
+        return hashes.get(group);
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof ConditionGroup)) {
+            return false;
+        }
+        // Compared with an explicit stack, since condition trees can be very deep
+        ArrayDeque<ConditionGroup[]> stack = new ArrayDeque<>();
+        stack.push(new ConditionGroup[] { this, (ConditionGroup) obj });
+        while (!stack.isEmpty()) {
+            ConditionGroup[] pair = stack.pop();
+            List<Condition> left = pair[0].conditions;
+            List<Condition> right = pair[1].conditions;
+            if (pair[0].operator != pair[1].operator || left.size() != right.size()) {
+                return false;
+            }
+            for (int i = 0; i < left.size(); i++) {
+                Condition l = left.get(i);
+                Condition r = right.get(i);
+                if (l instanceof ConditionGroup && r instanceof ConditionGroup) {
+                    if (l != r) {
+                        stack.push(new ConditionGroup[] { (ConditionGroup) l, (ConditionGroup) r });
+                    }
+                } else if (!l.equals(r)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    LogicalOperator getOperator() {
+        return operator;
+    }
+    
+    List<Condition> getConditions() {
+        return conditions;
+    }
+    
     public void add(Condition condition) {
+        addFlattened(conditions, operator, condition);
+        if (rendered) {
+            rendered = false;
+            Rendering.modified();
+        }
+    }
+    
+    private static void addFlattened(List<Condition> conditions, LogicalOperator operator, Condition condition) {
         if (condition instanceof ConditionGroup && ((ConditionGroup) condition).operator == operator) {
             conditions.addAll(((ConditionGroup) condition).conditions);
         } else {
@@ -47,10 +196,15 @@ public class ConditionGroup implements Condition {
     }
     
     public static Condition create(LogicalOperator operator, Condition left, Condition right, Condition... others) {
-        ConditionGroup group = new ConditionGroup(operator);
-        group.add(left);
-        group.add(right);
-        return group;
+        Builder builder = builder(operator, others.length + 2).add(left).add(right);
+        for (Condition other : others) {
+            builder.add(other);
+        }
+        return builder.build();
+    }
+    
+    public static Builder builder(LogicalOperator operator, int expectedSize) {
+        return new Builder(operator, expectedSize);
     }
 
 }
@@ -0,0 +1,263 @@
+package org.dhatim.safesql.builder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Simplifies condition trees before they are rendered.
+ * <p>
+ * Groups with the same operator are flattened, <code>TRUE</code> is dropped from AND groups and <code>FALSE</code>
+ * from OR groups, duplicate predicates are removed and <code>a = 1 OR a = 2</code> becomes
+ * <code>a IN (1, 2)</code>. An AND group containing <code>FALSE</code> or a predicate and its negation becomes
+ * <code>FALSE</code>, and an OR group containing <code>TRUE</code>, or both <code>a IS NULL</code> and
+ * <code>a IS NOT NULL</code>, becomes <code>TRUE</code>.
+ * <p>
+ * The result selects the same rows in a WHERE or HAVING clause. A contradiction over nullable operands evaluates to
+ * NULL in SQL and is folded to FALSE, so the simplified condition must not be used where NULL and FALSE differ.
+ * Predicates are compared with <code>equals</code>, so nodes without structural equality are never merged.
+ * <p>
+ * Queries only simplify their conditions when asked to, through {@link SelectQuery#simplifyConditions()} for
+ * instance, so that the SQL they render does not change otherwise.
+ */
+public final class ConditionSimplifier {
+
+    private static final class Frame {
+
+        private final ConditionGroup group;
+        private final List<Condition> simplified;
+        private int next;
+
+        Frame(ConditionGroup group) {
+            this.group = group;
+            this.simplified = new ArrayList<>(group.getConditions().size());
+        }
+
+    }
+
+    /**
+     * A group compared by its hash first, computed once per simplification.
+     */
+    private static final class GroupKey {
+
+        private final ConditionGroup group;
+        private final int hash;
+
+        GroupKey(ConditionGroup group, Map<ConditionGroup, Integer> hashes) {
+            this.group = group;
+            this.hash = ConditionGroup.hash(group, hashes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof GroupKey && ((GroupKey) obj).hash == hash && ((GroupKey) obj).group.equals(group);
+        }
+
+    }
+
+    private ConditionSimplifier() {
+    }
+
+    /**
+     * Simplifies a condition. The condition itself is returned if it cannot be simplified.
+     *
+     * @param condition condition to simplify
+     * @return the simplified condition
+     */
+    public static Condition simplify(Condition condition) {
+        if (!(condition instanceof ConditionGroup)) {
+            return condition;
+        }
+        // Post-order walk with an explicit stack, since condition trees can be very deep
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        Map<ConditionGroup, Integer> hashes = new IdentityHashMap<>();
+        stack.push(new Frame((ConditionGroup) condition));
+        Condition result = null;
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            List<Condition> children = frame.group.getConditions();
+            if (frame.next < children.size()) {
+                Condition child = children.get(frame.next++);
+                if (child instanceof ConditionGroup) {
+                    stack.push(new Frame((ConditionGroup) child));
+                } else {
+                    frame.simplified.add(child);
+                }
+            } else {
+                stack.pop();
+                Condition simplified = combine(frame.group, frame.simplified, hashes);
+                if (stack.isEmpty()) {
+                    result = simplified;
+                } else {
+                    stack.peek().simplified.add(simplified);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Simplifies conditions joined with AND, like the ones of a WHERE clause.
+     *
+     * @param conditions conditions to simplify
+     * @return the simplified conditions, empty if they are always true
+     */
+    static List<Condition> simplifyConjunction(List<Condition> conditions) {
+        if (conditions.isEmpty()) {
+            return conditions;
+        }
+        Condition condition = conditions.size() == 1 ? conditions.get(0) : new ConditionGroup(conditions, LogicalOperator.AND);
+        Condition simplified = simplify(condition);
+        if (isConstant(simplified, true)) {
+            return Collections.emptyList();
+        } else if (simplified instanceof ConditionGroup && ((ConditionGroup) simplified).getOperator() == LogicalOperator.AND) {
+            List<Condition> result = ((ConditionGroup) simplified).getConditions();
+            return sameInstances(result, conditions) ? conditions : result;
+        } else if (conditions.size() == 1 && simplified == conditions.get(0)) {
+            return conditions;
+        } else {
+            return Collections.singletonList(simplified);
+        }
+    }
+
+    private static Condition combine(ConditionGroup group, List<Condition> children, Map<ConditionGroup, Integer> hashes) {
+        LogicalOperator operator = group.getOperator();
+        boolean and = operator == LogicalOperator.AND;
+        Set<Object> seen = new HashSet<>();
+        List<Condition> terms = new ArrayList<>(children.size());
+        for (Condition child : children) {
+            if (child instanceof ConditionGroup && ((ConditionGroup) child).getOperator() == operator) {
+                for (Condition term : ((ConditionGroup) child).getConditions()) {
+                    if (addTerm(term, and, seen, terms, hashes)) {
+                        return term;
+                    }
+                }
+            } else if (addTerm(child, and, seen, terms, hashes)) {
+                return child;
+            }
+        }
+        for (Condition term : terms) {
+            if (!hasSimpleNegation(term)) {
+                continue;
+            }
+            if (and && seen.contains(term.negate())) {
+                return new BooleanValue(false);
+            }
+            if (!and && term instanceof NullCondition && seen.contains(term.negate())) {
+                return new BooleanValue(true);
+            }
+        }
+        if (!and) {
+            terms = mergeEquals(terms);
+        }
+        if (terms.isEmpty()) {
+            return new BooleanValue(and);
+        } else if (terms.size() == 1) {
+            return terms.get(0);
+        } else if (sameInstances(terms, group.getConditions())) {
+            return group;
+        } else {
+            return new ConditionGroup(terms, operator);
+        }
+    }
+
+    /**
+     * Adds a term to a group being simplified.
+     *
+     * @return {@code true} if the term decides the value of the whole group
+     */
+    private static boolean addTerm(Condition term, boolean and, Set<Object> seen, List<Condition> terms, Map<ConditionGroup, Integer> hashes) {
+        if (isConstant(term, and)) {
+            return false;
+        } else if (isConstant(term, !and)) {
+            return true;
+        }
+        // Nested groups are hashed once, the groups of the simplified tree being left unchanged meanwhile
+        if (seen.add(term instanceof ConditionGroup ? new GroupKey((ConditionGroup) term, hashes) : term)) {
+            terms.add(term);
+        }
+        return false;
+    }
+
+    private static List<Condition> mergeEquals(List<Condition> terms) {
+        Map<Operand, List<Condition>> termsByOperand = new LinkedHashMap<>();
+        boolean mergeable = false;
+        for (Condition term : terms) {
+            Operand left = membershipOperand(term);
+            if (left != null) {
+                List<Condition> sameOperand = termsByOperand.computeIfAbsent(left, k -> new ArrayList<>());
+                sameOperand.add(term);
+                mergeable |= sameOperand.size() > 1;
+            }
+        }
+        if (!mergeable) {
+            return terms;
+        }
+        List<Condition> result = new ArrayList<>(terms.size());
+        for (Condition term : terms) {
+            Operand left = membershipOperand(term);
+            List<Condition> sameOperand = left == null ? null : termsByOperand.get(left);
+            if (sameOperand == null || sameOperand.size() == 1) {
+                result.add(term);
+            } else if (sameOperand.get(0) == term) {
+                Set<Operand> values = new LinkedHashSet<>();
+                sameOperand.forEach(t -> values.addAll(membershipValues(t)));
+                result.add(new InCondition(left, false, new ArrayList<>(values)));
+            }
+        }
+        return result;
+    }
+
+    private static Operand membershipOperand(Condition term) {
+        if (term instanceof SimpleCondition && ((SimpleCondition) term).getOperator() == ComparisonOperator.EQ) {
+            return ((SimpleCondition) term).getLeft();
+        } else if (term instanceof InCondition && ((InCondition) term).getOperator() == RelationalOperator.IN) {
+            return ((InCondition) term).getLeft();
+        }
+        return null;
+    }
+
+    private static List<Operand> membershipValues(Condition term) {
+        if (term instanceof SimpleCondition) {
+            return Collections.singletonList(((SimpleCondition) term).getRight());
+        } else {
+            return ((InCondition) term).getRight().getElements();
+        }
+    }
+
+    /**
+     * Compares conditions by identity, since comparing deep trees structurally would walk them again at each level.
+     */
+    private static boolean sameInstances(List<Condition> a, List<Condition> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasSimpleNegation(Condition term) {
+        return term instanceof AbstractCondition || term instanceof NullCondition || term instanceof BooleanColumn;
+    }
+
+    private static boolean isConstant(Condition condition, boolean value) {
+        return condition instanceof BooleanValue && Boolean.valueOf(value).equals(((BooleanValue) condition).value());
+    }
+
+}
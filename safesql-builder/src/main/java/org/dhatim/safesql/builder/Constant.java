@@ -27,4 +27,20 @@ public class Constant implements Operand {
         builder.append(sql);
     }
     
+    @Override
+    public int hashCode() {
+        return 31 * getClass().hashCode() + sql.hashCode();
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        return sql.equals(((Constant) obj).sql);
+    }
+    
 }
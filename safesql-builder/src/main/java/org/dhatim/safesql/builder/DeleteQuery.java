@@ -0,0 +1,209 @@
+package org.dhatim.safesql.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.dhatim.safesql.SafeSqlBuilder;
+
+public class DeleteQuery implements WithQuery, WhereClause {
+
+    private final BuilderContext context;
+
+    private final String schema;
+    private final String tableName;
+    private final Alias alias;
+
+    private final List<CommonTableExpression> ctes = new ArrayList<>();
+    private final List<From> usings = new ArrayList<>();
+    private final List<Condition> conditions = new ArrayList<>();
+    private final List<Operand> returning = new ArrayList<>();
+
+    private Integer batchSize;
+    private boolean simplifyConditions;
+
+    private boolean rendered;
+
+    public DeleteQuery(String tableName) {
+        this(null, tableName, null);
+    }
+
+    public DeleteQuery(String schema, String tableName, Alias alias) {
+        this.context = new BuilderContext();
+        this.schema = schema;
+        this.tableName = tableName;
+        this.alias = alias;
+    }
+
+    public Alias getAlias() {
+        return alias;
+    }
+
+    public From using(String tableName, Alias alias) {
+        return using(From.table(null, tableName, alias));
+    }
+
+    public From using(String schema, String tableName, Alias alias) {
+        return using(From.table(schema, tableName, alias));
+    }
+
+    public From using(SqlQuery query, Alias alias) {
+        return using(From.query(query, alias, Collections.emptyList()));
+    }
+
+    public From using(SqlQuery query, Alias alias, List<String> columnNames) {
+        return using(From.query(query, alias, columnNames));
+    }
+
+    private From using(From from) {
+        usings.add(from);
+        modified();
+        return from;
+    }
+
+    /**
+     * Simplifies the conditions of the <code>WHERE</code> clause when rendering this query.
+     *
+     * @return this query
+     * @see ConditionSimplifier
+     */
+    public DeleteQuery simplifyConditions() {
+        simplifyConditions = true;
+        modified();
+        return this;
+    }
+
+    @Override
+    public DeleteQuery and(Condition condition) {
+        conditions.add(condition);
+        modified();
+        return this;
+    }
+
+    public DeleteQuery returning(Operand... operands) {
+        returning.addAll(Arrays.asList(operands));
+        modified();
+        return this;
+    }
+
+    public DeleteQuery returningAll() {
+        returning.add(new Constant("*"));
+        modified();
+        return this;
+    }
+
+    public DeleteQuery returning(String... columns) {
+        returning.addAll(Arrays.stream(columns).map(Column::new).collect(Collectors.toList()));
+        modified();
+        return this;
+    }
+
+    public DeleteQuery with(String name, WithQuery query) {
+        ctes.add(new CommonTableExpression(name, query));
+        modified();
+        return this;
+    }
+
+    public DeleteQuery with(String name, List<String> columnNames, WithQuery query) {
+        ctes.add(new CommonTableExpression(name, columnNames, query));
+        modified();
+        return this;
+    }
+
+    /**
+     * Deletes at most the given number of rows per execution:
+     * <code>DELETE FROM t WHERE ctid = ANY(ARRAY(SELECT ctid FROM t WHERE ... LIMIT ?))</code>.
+     * <p>
+     * The statement is meant to be executed again and again, each execution in its own transaction, until it
+     * deletes no row, so that locks are held for a bounded time.
+     *
+     * @param batchSize maximum number of rows deleted per execution
+     * @return this query
+     */
+    public DeleteQuery batched(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
+        modified();
+        return this;
+    }
+
+    public DeleteQuery notBatched() {
+        this.batchSize = null;
+        modified();
+        return this;
+    }
+
+    public Alias generate(String suggestion) {
+        return context.generate(suggestion);
+    }
+
+    private void modified() {
+        if (rendered) {
+            rendered = false;
+            Rendering.modified();
+        }
+    }
+
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        rendered = true;
+        if (!ctes.isEmpty()) {
+            builder.append("WITH ");
+            builder.appendJoined(", ", ctes);
+            builder.append(" ");
+        }
+        builder.append("DELETE FROM ");
+        appendTable(builder);
+        if (alias != null) {
+            builder.append(' ').append(alias);
+        }
+        if (batchSize == null) {
+            if (!usings.isEmpty()) {
+                builder.append(" USING ").appendJoined(", ", usings);
+            }
+            appendWhere(builder);
+        } else {
+            builder.append(" WHERE ctid = ANY(ARRAY(SELECT ");
+            if (!usings.isEmpty()) {
+                // Every table of the subquery has a ctid column
+                if (alias != null) {
+                    builder.append(alias);
+                } else {
+                    appendTable(builder);
+                }
+                builder.append('.');
+            }
+            builder.append("ctid FROM ");
+            appendTable(builder);
+            if (alias != null) {
+                builder.append(' ').append(alias);
+            }
+            if (!usings.isEmpty()) {
+                builder.append(", ").appendJoined(", ", usings);
+            }
+            appendWhere(builder);
+            builder.append(" LIMIT ").param(batchSize.intValue()).append("))");
+        }
+        if (!returning.isEmpty()) {
+            builder.append(" RETURNING ").appendJoined(", ", returning);
+        }
+    }
+
+    private void appendWhere(SafeSqlBuilder builder) {
+        List<Condition> simplifiedConditions = simplifyConditions ? ConditionSimplifier.simplifyConjunction(conditions) : conditions;
+        if (!simplifiedConditions.isEmpty()) {
+            builder.append(" WHERE ").appendJoined(" AND ", simplifiedConditions);
+        }
+    }
+
+    private void appendTable(SafeSqlBuilder builder) {
+        if (schema != null) {
+            builder.appendIdentifier(schema).append('.');
+        }
+        builder.appendIdentifier(tableName);
+    }
+
+}
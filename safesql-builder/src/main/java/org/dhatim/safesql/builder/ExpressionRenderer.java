@@ -0,0 +1,99 @@
+package org.dhatim.safesql.builder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import org.dhatim.safesql.SafeSql;
+import org.dhatim.safesql.SafeSqlBuilder;
+import org.dhatim.safesql.SafeSqlizable;
+
+/**
+ * Renders expression trees with an explicit stack instead of recursive calls to
+ * {@link SafeSqlizable#appendTo(SafeSqlBuilder)}, so that very deep conditions or computations render in constant
+ * stack depth.
+ * <p>
+ * Nodes implementing {@link Composite} are expanded into their parts; any other node is rendered with its own
+ * <code>appendTo</code>. A nested composite is never rendered through its <code>appendTo</code>, so composites declare
+ * it final: a subclass could otherwise render differently at the top of a tree than inside it.
+ */
+final class ExpressionRenderer {
+
+    interface Composite extends SafeSqlizable {
+
+        /**
+         * Adds the parts of this node, in rendering order.
+         *
+         * @param renderer renderer collecting the parts
+         */
+        void addParts(ExpressionRenderer renderer);
+
+    }
+
+    private final ArrayDeque<Object> stack = new ArrayDeque<>();
+    private final ArrayList<Object> parts = new ArrayList<>();
+
+    private ExpressionRenderer() {
+    }
+
+    ExpressionRenderer add(String sql) {
+        parts.add(sql);
+        return this;
+    }
+
+    ExpressionRenderer add(SafeSql sql) {
+        parts.add(sql);
+        return this;
+    }
+
+    ExpressionRenderer add(SafeSqlizable node) {
+        parts.add(node);
+        return this;
+    }
+
+    ExpressionRenderer addJoined(String delimiter, List<? extends SafeSqlizable> nodes) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i > 0) {
+                parts.add(delimiter);
+            }
+            parts.add(nodes.get(i));
+        }
+        return this;
+    }
+
+    ExpressionRenderer addJoined(SafeSql delimiter, List<? extends SafeSqlizable> nodes) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i > 0) {
+                parts.add(delimiter);
+            }
+            parts.add(nodes.get(i));
+        }
+        return this;
+    }
+
+    private void expand(Composite node) {
+        node.addParts(this);
+        for (int i = parts.size() - 1; i >= 0; i--) {
+            stack.push(parts.get(i));
+        }
+        parts.clear();
+    }
+
+    static void render(Composite root, SafeSqlBuilder builder) {
+        ExpressionRenderer renderer = new ExpressionRenderer();
+        renderer.expand(root);
+        ArrayDeque<Object> stack = renderer.stack;
+        while (!stack.isEmpty()) {
+            Object item = stack.pop();
+            if (item instanceof String) {
+                builder.append((String) item);
+            } else if (item instanceof Composite) {
+                renderer.expand((Composite) item);
+            } else if (item instanceof SafeSql) {
+                builder.append((SafeSql) item);
+            } else {
+                builder.append((SafeSqlizable) item);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+package org.dhatim.safesql.builder;
+
+import java.util.IdentityHashMap;
+import java.util.function.Supplier;
+import org.dhatim.safesql.SafeSql;
+import org.dhatim.safesql.SafeSqlBuilder;
+import org.dhatim.safesql.SafeSqlizable;
+
+/**
+ * Renders each heavy node once per statement.
+ * <p>
+ * While a statement is rendered, a node implementing {@link Cacheable} is rendered into a fragment kept by identity,
+ * so the same instance appearing again in the statement is appended as the same {@link SafeSql}. Fragments are dropped
+ * once the statement is rendered, and nodes are rendered directly outside of a statement rendering.
+ * <p>
+ * The rendering in progress also tells whether nodes may use the renderings they keep themselves: they must not while
+ * a {@link SubqueryExtraction} is in progress, which renders them differently, nor on the threads of
+ * {@link ParallelRenderer}, which may render the same node concurrently.
+ */
+final class FragmentCache {
+
+    interface Cacheable extends SafeSqlizable {
+
+        /**
+         * Renders this node, without looking up the cache.
+         *
+         * @param builder builder where the node is appended
+         */
+        void appendUncached(SafeSqlBuilder builder);
+
+    }
+
+    private static final ThreadLocal<FragmentCache> CURRENT = new ThreadLocal<>();
+
+    private final IdentityHashMap<Cacheable, SafeSql> fragments = new IdentityHashMap<>();
+
+    private final boolean concurrent;
+
+    private SubqueryExtraction extraction;
+
+    private FragmentCache(boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
+    /**
+     * Renders a statement with a fragment cache, or with the cache of the enclosing statement if there is one.
+     */
+    static SafeSql render(Supplier<SafeSql> statement) {
+        if (CURRENT.get() != null) {
+            return statement.get();
+        }
+        CURRENT.set(new FragmentCache(false));
+        try {
+            return statement.get();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Renders nodes which other threads may render at the same time, with a fragment cache of their own and without
+     * the renderings kept by nodes.
+     */
+    static void renderConcurrently(Runnable rendering) {
+        FragmentCache previous = CURRENT.get();
+        CURRENT.set(new FragmentCache(true));
+        try {
+            rendering.run();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Renders a statement while the given extraction is in progress.
+     */
+    static SafeSql extract(SubqueryExtraction extraction, Supplier<SafeSql> statement) {
+        FragmentCache cache = CURRENT.get();
+        boolean created = cache == null;
+        if (created) {
+            cache = new FragmentCache(false);
+            CURRENT.set(cache);
+        }
+        SubqueryExtraction previous = cache.extraction;
+        cache.extraction = extraction;
+        try {
+            return statement.get();
+        } finally {
+            cache.extraction = previous;
+            if (created) {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the subquery extraction in progress on this thread, or {@code null}.
+     */
+    static SubqueryExtraction extraction() {
+        FragmentCache cache = CURRENT.get();
+        return cache == null ? null : cache.extraction;
+    }
+
+    /**
+     * Tells whether nodes may read and write the renderings they keep themselves.
+     */
+    static boolean usesNodeCaches() {
+        FragmentCache cache = CURRENT.get();
+        return cache == null || !cache.concurrent && cache.extraction == null;
+    }
+
+    static void append(SafeSqlBuilder builder, Cacheable node) {
+        FragmentCache cache = CURRENT.get();
+        // Subqueries are counted while extracting, so each occurrence must be rendered
+        if (cache == null || cache.extraction != null) {
+            node.appendUncached(builder);
+            return;
+        }
+        SafeSql fragment = cache.fragments.get(node);
+        if (fragment == null) {
+            SafeSqlBuilder sb = new SafeSqlBuilder();
+            node.appendUncached(sb);
+            fragment = sb.toSafeSql();
+            cache.fragments.put(node, fragment);
+        }
+        builder.append(fragment);
+    }
+
+}
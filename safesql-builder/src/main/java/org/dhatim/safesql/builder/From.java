@@ -3,6 +3,8 @@ package org.dhatim.safesql.builder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import org.dhatim.safesql.SafeSql;
 import org.dhatim.safesql.SafeSqlBuilder;
 import org.dhatim.safesql.SafeSqlizable;
 
@@ -10,21 +12,36 @@ public abstract class From extends AbstractHasJointure implements SafeSqlizable
     
     private static class TableFrom extends From {
         
-        private final String schema;
-        private final String tableName;
+        private final SafeSql table;
         
         private TableFrom(String schema, String tableName, Alias alias, List<String> columnAliases) {
             super(alias, columnAliases);
-            this.schema = schema;
-            this.tableName = tableName;
-        }
-        
-        @Override
-        protected void render(SafeSqlBuilder sb) {
+            SafeSqlBuilder sb = new SafeSqlBuilder();
             if (schema != null) {
                 sb.appendIdentifier(schema).append(".");
             }
             sb.appendIdentifier(tableName);
+            this.table = sb.toSafeSql();
+        }
+        
+        private TableFrom(TableFrom other) {
+            super(other.getAlias(), ((From) other).columnAliases);
+            this.table = other.table;
+        }
+        
+        @Override
+        From copySource() {
+            return new TableFrom(this);
+        }
+        
+        @Override
+        SafeSql renderSource() {
+            return table;
+        }
+        
+        @Override
+        void appendSource(SafeSqlBuilder sb, SafeSql source) {
+            sb.append(source);
         }
         
     }
@@ -39,16 +56,32 @@ public abstract class From extends AbstractHasJointure implements SafeSqlizable
         }
         
         @Override
-        protected void render(SafeSqlBuilder sb) {
-            sb.append('(');
-            sb.append(query);
-            sb.append(')');
+        From copySource() {
+            return new SubQueryFrom(query, getAlias(), ((From) this).columnAliases);
+        }
+        
+        @Override
+        SafeSql renderSource() {
+            return SubqueryExtraction.renderSubquery(query);
+        }
+        
+        @Override
+        void appendSource(SafeSqlBuilder sb, SafeSql source) {
+            if (SubqueryExtraction.isReference(source)) {
+                sb.append(source);
+            } else {
+                sb.append('(');
+                sb.append(source);
+                sb.append(')');
+            }
         }
         
     }
     
     private final Alias alias;
     private final List<String> columnAliases;
+    
+    private Rendering rendering;
 
     private From(Alias alias, List<String> columnAliases) {
         this.alias = alias;
@@ -59,21 +92,58 @@ public abstract class From extends AbstractHasJointure implements SafeSqlizable
         return alias;
     }
 
-    protected abstract void render(SafeSqlBuilder sb);
+    abstract SafeSql renderSource();
+    
+    /**
+     * Returns a copy of this from, without its jointures.
+     */
+    abstract From copySource();
+    
+    /**
+     * Returns a copy of this from, sharing its jointures except the removed ones.
+     */
+    From withoutJointures(Set<Jointure> removed) {
+        From copy = copySource();
+        for (Jointure jointure : getJointures()) {
+            if (!removed.contains(jointure)) {
+                copy.addJointure(jointure);
+            }
+        }
+        return copy;
+    }
+    
+    abstract void appendSource(SafeSqlBuilder sb, SafeSql source);
 
     @Override
-    public void appendTo(SafeSqlBuilder builder) {
-        render(builder);
+    public SafeSql toSafeSql() {
+        rendered();
+        boolean cached = FragmentCache.usesNodeCaches();
+        long stamp = Rendering.stamp();
+        Rendering r = rendering;
+        if (cached && r != null && r.isValid(stamp)) {
+            return r.getResult();
+        }
+        SafeSqlBuilder builder = new SafeSqlBuilder();
+        appendSource(builder, renderSource());
         if (alias != null) {
             builder.append(" ").append(alias);
         }
         if (!columnAliases.isEmpty()) {
             builder.append(" ").appendJoined(", ", "(", ")", columnAliases.stream().map(Identifier::new));
         }
-        List<Jointure> jointures = getJointures();
-        if (!jointures.isEmpty()) {
-            builder.append(" ").appendJoined(" ", jointures);
+        if (hasJointures()) {
+            builder.append(" ").appendJoined(" ", getJointures());
+        }
+        SafeSql result = builder.toSafeSql();
+        if (cached) {
+            rendering = new Rendering(stamp, result);
         }
+        return result;
+    }
+
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        builder.append(toSafeSql());
     }
     
     public static From table(String schema, String tableName, Alias alias) {
@@ -10,6 +10,18 @@ public interface HasJointure {
     
     Jointure insertLeftJoin(Jointure before, String schema, String tableName, Alias alias);
     
+    /**
+     * Joins a subquery. Without condition, the jointure is rendered <code>ON TRUE</code>.
+     */
+    Jointure join(JointureType type, SqlQuery query, Alias alias);
+    
+    /**
+     * Joins a <code>LATERAL</code> subquery, which may refer to the columns of the preceding froms, like
+     * <code>LEFT JOIN LATERAL (SELECT ... ORDER BY ... LIMIT 3) x ON TRUE</code> to select the first rows of each
+     * group.
+     */
+    Jointure joinLateral(JointureType type, SqlQuery query, Alias alias);
+    
     default Jointure innerJoin(String tableName) {
         return innerJoin(null, tableName, null);
     }
@@ -0,0 +1,170 @@
+package org.dhatim.safesql.builder;
+
+import java.util.Collections;
+import java.util.List;
+import org.dhatim.safesql.SafeSql;
+import org.dhatim.safesql.SafeSqlBuilder;
+import org.dhatim.safesql.builder.SelectQuery.OrderElement;
+
+/**
+ * An immutable select query.
+ * <p>
+ * Each <code>with...</code> method returns a new query sharing the clauses of this one, so deriving many variants of
+ * a base query costs <code>O(log n)</code> per variant instead of a copy of every clause. Instances may be shared
+ * between threads; operands, conditions and froms added to a query must not be modified afterwards.
+ *
+ * @see SelectQuery#toImmutable()
+ */
+public final class ImmutableSelectQuery implements SqlQuery {
+
+    private final BuilderContext context;
+    private final PersistentVector<CommonTableExpression> ctes;
+    private final PersistentVector<Operand> selects;
+    private final PersistentVector<From> froms;
+    private final PersistentVector<Condition> conditions;
+    private final PersistentVector<Condition> havings;
+    private final PersistentVector<Operand> groupBy;
+    private final PersistentVector<NamedWindow> windows;
+    private final boolean distinct;
+    private final PersistentVector<OrderElement> orders;
+    private final Integer limit;
+
+    private volatile SafeSql rendering;
+
+    public ImmutableSelectQuery() {
+        this(BuilderContext.concurrent(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), false, Collections.emptyList(), null);
+    }
+
+    ImmutableSelectQuery(BuilderContext context, List<CommonTableExpression> ctes, List<Operand> selects, List<From> froms, List<Condition> conditions,
+            List<Condition> havings, List<Operand> groupBy, List<NamedWindow> windows, boolean distinct, List<OrderElement> orders, Integer limit) {
+        this(context, PersistentVector.<CommonTableExpression>empty().plusAll(ctes), PersistentVector.<Operand>empty().plusAll(selects),
+                PersistentVector.<From>empty().plusAll(froms), PersistentVector.<Condition>empty().plusAll(conditions),
+                PersistentVector.<Condition>empty().plusAll(havings), PersistentVector.<Operand>empty().plusAll(groupBy),
+                PersistentVector.<NamedWindow>empty().plusAll(windows), distinct, PersistentVector.<OrderElement>empty().plusAll(orders), limit);
+    }
+
+    private ImmutableSelectQuery(BuilderContext context, PersistentVector<CommonTableExpression> ctes, PersistentVector<Operand> selects,
+            PersistentVector<From> froms, PersistentVector<Condition> conditions, PersistentVector<Condition> havings,
+            PersistentVector<Operand> groupBy, PersistentVector<NamedWindow> windows, boolean distinct, PersistentVector<OrderElement> orders,
+            Integer limit) {
+        this.context = context;
+        this.ctes = ctes;
+        this.selects = selects;
+        this.froms = froms;
+        this.conditions = conditions;
+        this.havings = havings;
+        this.groupBy = groupBy;
+        this.windows = windows;
+        this.distinct = distinct;
+        this.orders = orders;
+        this.limit = limit;
+    }
+
+    public ImmutableSelectQuery withCte(String name, WithQuery query) {
+        return new ImmutableSelectQuery(context, ctes.plus(new CommonTableExpression(name, query)), selects, froms, conditions, havings, groupBy, windows, distinct, orders, limit);
+    }
+
+    public ImmutableSelectQuery withSelect(Operand operand) {
+        return new ImmutableSelectQuery(context, ctes, selects.plus(operand), froms, conditions, havings, groupBy, windows, distinct, orders, limit);
+    }
+
+    public ImmutableSelectQuery withSelect(Alias alias, String columnName) {
+        return withSelect(new Column(alias, columnName));
+    }
+
+    public ImmutableSelectQuery withSelect(Operand operand, Alias alias) {
+        return withSelect(new NamedOperand(operand, alias));
+    }
+
+    public ImmutableSelectQuery withoutSelects() {
+        return new ImmutableSelectQuery(context, ctes, PersistentVector.empty(), froms, conditions, havings, groupBy, windows, distinct, orders, limit);
+    }
+
+    public ImmutableSelectQuery withFrom(From from) {
+        return new ImmutableSelectQuery(context, ctes, selects, froms.plus(from), conditions, havings, groupBy, windows, distinct, orders, limit);
+    }
+
+    public ImmutableSelectQuery withFrom(String tableName, Alias alias) {
+        return withFrom(From.table(null, tableName, alias));
+    }
+
+    public ImmutableSelectQuery withFrom(SqlQuery query, Alias alias) {
+        return withFrom(From.query(query, alias));
+    }
+
+    public ImmutableSelectQuery withCondition(Condition condition) {
+        return new ImmutableSelectQuery(context, ctes, selects, froms, conditions.plus(condition), havings, groupBy, windows, distinct, orders, limit);
+    }
+
+    public ImmutableSelectQuery withGroupBy(Column column) {
+        return new ImmutableSelectQuery(context, ctes, selects, froms, conditions, havings, groupBy.plus(column), windows, distinct, orders, limit);
+    }
+
+    public ImmutableSelectQuery withHaving(Condition condition) {
+        return new ImmutableSelectQuery(context, ctes, selects, froms, conditions, havings.plus(condition), groupBy, windows, distinct, orders, limit);
+    }
+
+    public ImmutableSelectQuery withWindow(NamedWindow window) {
+        return new ImmutableSelectQuery(context, ctes, selects, froms, conditions, havings, groupBy, windows.plus(window), distinct, orders, limit);
+    }
+
+    public ImmutableSelectQuery withDistinct(boolean distinct) {
+        return new ImmutableSelectQuery(context, ctes, selects, froms, conditions, havings, groupBy, windows, distinct, orders, limit);
+    }
+
+    public ImmutableSelectQuery withOrder(String column, Order order) {
+        return withOrder(null, column, order);
+    }
+
+    public ImmutableSelectQuery withOrder(Alias alias, String column, Order order) {
+        return new ImmutableSelectQuery(context, ctes, selects, froms, conditions, havings, groupBy, windows, distinct, orders.plus(new OrderElement(alias, column, order)), limit);
+    }
+
+    public ImmutableSelectQuery withoutOrders() {
+        return new ImmutableSelectQuery(context, ctes, selects, froms, conditions, havings, groupBy, windows, distinct, PersistentVector.empty(), limit);
+    }
+
+    public ImmutableSelectQuery withLimit(int limit) {
+        return new ImmutableSelectQuery(context, ctes, selects, froms, conditions, havings, groupBy, windows, distinct, orders, limit);
+    }
+
+    public ImmutableSelectQuery withoutLimit() {
+        return new ImmutableSelectQuery(context, ctes, selects, froms, conditions, havings, groupBy, windows, distinct, orders, null);
+    }
+
+    /**
+     * Generates an alias unique among this query and all the queries derived from the same base.
+     *
+     * @param suggestion suggested alias name
+     * @return a new alias
+     */
+    public Alias generate(String suggestion) {
+        return context.generate(suggestion);
+    }
+
+    /**
+     * Returns a mutable copy of this query.
+     *
+     * @return a new mutable query
+     */
+    public SelectQuery toSelectQuery() {
+        return new SelectQuery(new BuilderContext(context, false), ctes, selects, froms, conditions, havings, groupBy, windows, distinct, orders, limit);
+    }
+
+    @Override
+    public SafeSql toSafeSql() {
+        SafeSql result = rendering;
+        if (result == null) {
+            result = new SelectQuery(context, ctes, selects, froms, conditions, havings, groupBy, windows, distinct, orders, limit).toSafeSql();
+            rendering = result;
+        }
+        return result;
+    }
+
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        builder.append(toSafeSql());
+    }
+
+}
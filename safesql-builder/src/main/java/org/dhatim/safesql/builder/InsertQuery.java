@@ -2,11 +2,99 @@ package org.dhatim.safesql.builder;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.dhatim.safesql.SafeSqlBuilder;
 import org.dhatim.safesql.SafeSqlizable;
 
-public class InsertQuery implements SafeSqlizable {
+public class InsertQuery implements WithQuery {
+    
+    /**
+     * The <code>ON CONFLICT</code> clause of an insert, turning it into an upsert.
+     */
+    public static final class OnConflict implements WhereClause, SafeSqlizable {
+        
+        private final List<String> columns;
+        private final String constraint;
+        
+        private boolean doNothing;
+        private final List<Assignment> assignments = new ArrayList<>();
+        private final List<Condition> conditions = new ArrayList<>();
+        
+        private boolean rendered;
+        
+        private OnConflict(List<String> columns, String constraint) {
+            this.columns = columns;
+            this.constraint = constraint;
+        }
+        
+        public OnConflict doNothing() {
+            if (!assignments.isEmpty()) {
+                throw new BuilderException("ON CONFLICT clause already has a DO UPDATE action");
+            }
+            doNothing = true;
+            modified();
+            return this;
+        }
+        
+        public OnConflict doUpdate(Assignment... assignments) {
+            return doUpdate(Arrays.asList(assignments));
+        }
+        
+        public OnConflict doUpdate(List<Assignment> assignments) {
+            if (doNothing) {
+                throw new BuilderException("ON CONFLICT clause already has a DO NOTHING action");
+            }
+            if (columns.isEmpty() && constraint == null) {
+                throw new BuilderException("ON CONFLICT DO UPDATE requires conflict columns or a constraint");
+            }
+            this.assignments.addAll(assignments);
+            modified();
+            return this;
+        }
+        
+        /**
+         * Adds a condition to the <code>DO UPDATE</code> action: conflicting rows not matching it are left unchanged.
+         */
+        @Override
+        public OnConflict and(Condition condition) {
+            conditions.add(condition);
+            modified();
+            return this;
+        }
+        
+        private void modified() {
+            if (rendered) {
+                rendered = false;
+                Rendering.modified();
+            }
+        }
+        
+        @Override
+        public void appendTo(SafeSqlBuilder builder) {
+            rendered = true;
+            builder.append(" ON CONFLICT");
+            if (constraint != null) {
+                builder.append(" ON CONSTRAINT ").appendIdentifier(constraint);
+            } else if (!columns.isEmpty()) {
+                builder.append(' ').appendJoined(", ", "(", ")", columns.stream().map(Identifier::new));
+            }
+            if (doNothing) {
+                builder.append(" DO NOTHING");
+            } else if (assignments.isEmpty()) {
+                throw new BuilderException("ON CONFLICT clause must have a DO NOTHING or DO UPDATE action");
+            } else {
+                builder.append(" DO UPDATE SET ").appendJoined(", ", assignments);
+                if (!conditions.isEmpty()) {
+                    builder.append(" WHERE ").appendJoined(" AND ", conditions);
+                }
+            }
+        }
+        
+    }
+    
+    private static final Alias EXCLUDED = new Alias(null, "excluded");
     
     private final String schema;
     private final String tableName;
@@ -17,6 +105,11 @@ public class InsertQuery implements SafeSqlizable {
     
     private final List<CommonTableExpression> ctes = new ArrayList<>();
     
+    private OnConflict onConflict;
+    private final List<Operand> returning = new ArrayList<>();
+    
+    private boolean rendered;
+    
     public InsertQuery(String schema, String tableName, List<String> columns, SqlQuery query) {
         this.schema = schema;
         this.tableName = tableName;
@@ -28,8 +121,35 @@ public class InsertQuery implements SafeSqlizable {
         this(schema, tableName, Arrays.asList(columns), query);
     }
     
+    /**
+     * Creates an insert of the rows given column by column, as arrays:
+     * <code>INSERT INTO t (a, b) SELECT * FROM unnest(?::int8[], ?::text[])</code>.
+     *
+     * @param schema schema of the table, or {@code null}
+     * @param tableName name of the table
+     * @param columns names of the inserted columns
+     * @param sqlTypes SQL types of the inserted columns
+     * @param arrays values of the inserted columns, one array or list per column
+     * @return the insert query
+     * @see Unnest
+     */
+    public static InsertQuery fromArrays(String schema, String tableName, List<String> columns, List<String> sqlTypes, List<?> arrays) {
+        if (columns.size() != sqlTypes.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " types, got " + sqlTypes.size());
+        }
+        return new InsertQuery(schema, tableName, columns, new Unnest(sqlTypes, arrays));
+    }
+
+    private void modified() {
+        if (rendered) {
+            rendered = false;
+            Rendering.modified();
+        }
+    }
+    
     @Override
     public void appendTo(SafeSqlBuilder builder) {
+        rendered = true;
         if (!ctes.isEmpty()) {
             builder.append("WITH ");
             builder.appendJoined(", ", ctes);
@@ -40,19 +160,76 @@ public class InsertQuery implements SafeSqlizable {
             builder.appendIdentifier(schema).append('.');
         }
         builder.appendIdentifier(tableName).append(' ');
-        builder.appendJoined(", ", "(", ")", columns.stream().map(Identifier::new));
-        builder.append(' ');
+        if (!columns.isEmpty()) {
+            builder.appendJoined(", ", "(", ")", columns.stream().map(Identifier::new));
+            builder.append(' ');
+        }
         query.appendTo(builder);
+        if (onConflict != null) {
+            onConflict.appendTo(builder);
+        }
+        if (!returning.isEmpty()) {
+            builder.append(" RETURNING ").appendJoined(", ", returning);
+        }
     }
     
-    public InsertQuery with(String name, SqlQuery query) {
+    public InsertQuery with(String name, WithQuery query) {
         ctes.add(new CommonTableExpression(name, query));
+        modified();
         return this;
     }
     
-    public InsertQuery with(String name, List<String> columnNames, SqlQuery query) {
+    public InsertQuery with(String name, List<String> columnNames, WithQuery query) {
         ctes.add(new CommonTableExpression(name, columnNames, query));
+        modified();
+        return this;
+    }
+
+    /**
+     * Adds an <code>ON CONFLICT</code> clause on a unique index of the given columns, or on any unique constraint
+     * if no column is given.
+     *
+     * @param columns columns of the unique index
+     * @return the clause, to set its action
+     */
+    public OnConflict onConflict(String... columns) {
+        onConflict = new OnConflict(Arrays.asList(columns), null);
+        modified();
+        return onConflict;
+    }
+    
+    public OnConflict onConflictOnConstraint(String constraint) {
+        onConflict = new OnConflict(Collections.emptyList(), constraint);
+        modified();
+        return onConflict;
+    }
+    
+    public InsertQuery returning(Operand... operands) {
+        returning.addAll(Arrays.asList(operands));
+        modified();
         return this;
     }
+    
+    public InsertQuery returningAll() {
+        returning.add(new Constant("*"));
+        modified();
+        return this;
+    }
+    
+    public InsertQuery returning(String... columns) {
+        returning.addAll(Arrays.stream(columns).map(Column::new).collect(Collectors.toList()));
+        modified();
+        return this;
+    }
+    
+    /**
+     * References a column of the row proposed for insertion, in the <code>DO UPDATE</code> action of an upsert.
+     *
+     * @param column name of the column
+     * @return the column of the <code>EXCLUDED</code> table
+     */
+    public static Column excluded(String column) {
+        return new Column(EXCLUDED, column);
+    }
 
 }
@@ -3,56 +3,117 @@ package org.dhatim.safesql.builder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import org.dhatim.safesql.SafeSql;
 import org.dhatim.safesql.SafeSqlBuilder;
 import org.dhatim.safesql.SafeSqlizable;
 
 public class Jointure extends AbstractHasJointure implements WhereClause, SafeSqlizable {
 
     private final List<Condition> conditions = new ArrayList<>();
-    private final String tableName;
+    private final SafeSql table;
+    private final SqlQuery query;
+    private final boolean lateral;
     private final Alias alias;
     private final JointureType type;
-    private final String schema;
+    
+    private Rendering rendering;
 
     Jointure(JointureType type, String schema, String tableName, Alias alias) {
         this.type = type;
-        this.schema = schema;
-        this.tableName = tableName;
+        SafeSqlBuilder sb = new SafeSqlBuilder();
+        if (schema != null) {
+            sb.appendIdentifier(schema).append(".");
+        }
+        sb.appendIdentifier(tableName);
+        this.table = sb.toSafeSql();
+        this.query = null;
+        this.lateral = false;
         this.alias = alias;
     }
     
+    Jointure(JointureType type, SqlQuery query, Alias alias, boolean lateral) {
+        this.type = type;
+        this.table = null;
+        this.query = Objects.requireNonNull(query, "Query must be not null");
+        this.lateral = lateral;
+        this.alias = Objects.requireNonNull(alias, "A subquery must have an alias");
+    }
+    
     public JointureType getType() {
         return type;
     }
+    
+    public Alias getAlias() {
+        return alias;
+    }
 
     @Override
     public Jointure and(Condition condition) {
         Objects.requireNonNull(condition);
         conditions.add(condition);
+        modified();
         return this;
     }
 
     @Override
-    public void appendTo(SafeSqlBuilder sb) {
+    public SafeSql toSafeSql() {
+        rendered();
+        boolean cached = FragmentCache.usesNodeCaches();
+        long stamp = Rendering.stamp();
+        Rendering r = rendering;
+        if (cached && r != null && r.isValid(stamp)) {
+            return r.getResult();
+        }
+        SafeSqlBuilder sb = new SafeSqlBuilder();
         sb.append(type).append(" ");
-        if (hasJointures()) {
+        boolean nested = hasJointures();
+        if (nested) {
             sb.append("(");
         }
-        if (schema != null) {
-            sb.appendIdentifier(schema).append(".");
-        }
-        sb.appendIdentifier(tableName);
+        appendSource(sb, renderSource());
         if (alias != null) {
             sb.append(" ").append(alias);
         }
-        List<Jointure> jointures = getJointures();
-        if (!jointures.isEmpty()) {
-            sb.append(" ").appendJoined(" ", jointures).append(")");
+        if (nested) {
+            sb.append(" ").appendJoined(" ", getJointures()).append(")");
         }
-        sb.append(" ON ");
-        if (!conditions.isEmpty()) {
-            sb.appendJoined(" AND ", conditions);
+        if (type != JointureType.CROSS) {
+            sb.append(" ON ");
+            if (conditions.isEmpty()) {
+                sb.append("TRUE");
+            } else {
+                sb.appendJoined(" AND ", conditions);
+            }
         }
+        SafeSql result = sb.toSafeSql();
+        if (cached) {
+            rendering = new Rendering(stamp, result);
+        }
+        return result;
+    }
+
+    private SafeSql renderSource() {
+        if (table != null) {
+            return table;
+        }
+        // A lateral subquery refers to the preceding froms, so it cannot be extracted to a common table expression
+        return lateral ? query.toSafeSql() : SubqueryExtraction.renderSubquery(query);
+    }
+    
+    private void appendSource(SafeSqlBuilder sb, SafeSql source) {
+        if (table != null || SubqueryExtraction.isReference(source)) {
+            sb.append(source);
+        } else {
+            if (lateral) {
+                sb.append("LATERAL ");
+            }
+            sb.append('(').append(source).append(')');
+        }
+    }
+
+    @Override
+    public void appendTo(SafeSqlBuilder sb) {
+        sb.append(toSafeSql());
     }
 
 }
@@ -1,5 +1,6 @@
 package org.dhatim.safesql.builder;
 
+import java.util.Objects;
 import org.dhatim.safesql.SafeSql;
 import org.dhatim.safesql.SafeSqlBuilder;
 import org.dhatim.safesql.SafeSqlUtils;
@@ -38,4 +39,20 @@ public class Literal implements Operand {
         builder.appendStringLiteral(value);
     }
     
+    @Override
+    public int hashCode() {
+        return 31 * getClass().hashCode() + Objects.hashCode(value);
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        return Objects.equals(value, ((Literal) obj).value);
+    }
+    
 }
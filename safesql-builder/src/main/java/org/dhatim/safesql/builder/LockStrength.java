@@ -0,0 +1,25 @@
+package org.dhatim.safesql.builder;
+
+import org.dhatim.safesql.SafeSqlBuilder;
+import org.dhatim.safesql.SafeSqlizable;
+
+/**
+ * Strength of the row locks taken by a locking clause of a select query.
+ */
+public enum LockStrength implements SafeSqlizable {
+    UPDATE("FOR UPDATE"),
+    NO_KEY_UPDATE("FOR NO KEY UPDATE"),
+    SHARE("FOR SHARE"),
+    KEY_SHARE("FOR KEY SHARE");
+
+    private final String sql;
+
+    private LockStrength(String sql) {
+        this.sql = sql;
+    }
+
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        builder.append(sql);
+    }
+}
@@ -0,0 +1,27 @@
+package org.dhatim.safesql.builder;
+
+import org.dhatim.safesql.SafeSqlBuilder;
+import org.dhatim.safesql.SafeSqlizable;
+
+/**
+ * What a locking clause of a select query does with rows already locked by another transaction.
+ */
+public enum LockWaitPolicy implements SafeSqlizable {
+    /** Waits for the other transaction to end. */
+    WAIT(""),
+    /** Fails at once. */
+    NOWAIT(" NOWAIT"),
+    /** Leaves the row out of the result. */
+    SKIP_LOCKED(" SKIP LOCKED");
+
+    private final String sql;
+
+    private LockWaitPolicy(String sql) {
+        this.sql = sql;
+    }
+
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        builder.append(sql);
+    }
+}
@@ -9,9 +9,15 @@ public enum LogicalOperator implements ConditionalOperator {
     OR("OR");
 
     private String sql;
+    private String spacedSql;
 
     private LogicalOperator(String sql) {
         this.sql = sql;
+        this.spacedSql = " " + sql + " ";
+    }
+    
+    String getSpacedSql() {
+        return spacedSql;
     }
 
     @Override
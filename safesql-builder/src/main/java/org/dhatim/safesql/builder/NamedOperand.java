@@ -3,7 +3,7 @@ package org.dhatim.safesql.builder;
 import org.dhatim.safesql.SafeSql;
 import org.dhatim.safesql.SafeSqlBuilder;
 
-public class NamedOperand implements Operand {
+public class NamedOperand implements Operand, ExpressionRenderer.Composite {
 
     private final Alias alias;
     private final Operand operand;
@@ -31,10 +31,15 @@ public class NamedOperand implements Operand {
     }
     
     @Override
-    public void appendTo(SafeSqlBuilder builder) {
-        builder.append(operand)
-                .append(" AS ")
-                .append(alias);
+    public final void appendTo(SafeSqlBuilder builder) {
+        ExpressionRenderer.render(this, builder);
+    }
+    
+    @Override
+    public void addParts(ExpressionRenderer renderer) {
+        renderer.add(operand)
+                .add(" AS ")
+                .add(alias);
     }
 
 }
@@ -1,8 +1,9 @@
 package org.dhatim.safesql.builder;
 
+import java.util.Objects;
 import org.dhatim.safesql.SafeSqlBuilder;
 
-public class NullCondition implements Condition {
+public class NullCondition implements Condition, ExpressionRenderer.Composite {
 
     private Operand operand;
     private boolean nullTest;
@@ -13,12 +14,13 @@ public class NullCondition implements Condition {
     }
     
     @Override
-    public void appendTo(SafeSqlBuilder sb) {
-        sb.append(operand).append(" IS " );
-        if (!nullTest) {
-            sb.append("NOT ");
-        }
-        sb.append("NULL");
+    public final void appendTo(SafeSqlBuilder sb) {
+        ExpressionRenderer.render(this, sb);
+    }
+    
+    @Override
+    public void addParts(ExpressionRenderer renderer) {
+        renderer.add(operand).add(nullTest ? " IS NULL" : " IS NOT NULL");
     }
     
     @Override
@@ -26,6 +28,27 @@ public class NullCondition implements Condition {
         return nullTest ? isNot(operand) : is(operand);
     }
     
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(operand) ^ (nullTest ? 1231 : 1237);
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof NullCondition) {
+            NullCondition other = (NullCondition) obj;
+            return nullTest == other.nullTest && Objects.equals(operand, other.operand);
+        }
+        return false;
+    }
+    
+    boolean isNullTest() {
+        return nullTest;
+    }
+    
     public static NullCondition is(Operand operand) {
         return new NullCondition(operand, true);
     }
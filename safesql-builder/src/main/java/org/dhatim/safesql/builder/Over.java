@@ -2,7 +2,7 @@ package org.dhatim.safesql.builder;
 
 import org.dhatim.safesql.SafeSqlBuilder;
 
-public class Over implements Operand {
+public class Over implements Operand, FragmentCache.Cacheable {
 
     private final Call windowFunction;
     private final Window window;
@@ -22,6 +22,11 @@ public class Over implements Operand {
     
     @Override
     public void appendTo(SafeSqlBuilder sb) {
+        FragmentCache.append(sb, this);
+    }
+    
+    @Override
+    public void appendUncached(SafeSqlBuilder sb) {
         sb.append(windowFunction);
         sb.append(" OVER ");
         if (window instanceof NamedWindow) {
@@ -0,0 +1,113 @@
+package org.dhatim.safesql.builder;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToIntFunction;
+import org.dhatim.safesql.SafeSql;
+import org.dhatim.safesql.SafeSqlBuilder;
+import org.dhatim.safesql.SafeSqlizable;
+
+/**
+ * Renders the children of a very wide node, like the rows of a <code>VALUES</code>, on the common fork-join pool.
+ * <p>
+ * Each child has an estimated cost, like the number of operands of a row, or {@link #QUERY_COST} for a query.
+ * Children are split into ranges of about the same cost, each range is rendered into its own builder, and the ranges
+ * are appended in order. Below a total cost of {@link #THRESHOLD}, or while a subquery extraction is in progress,
+ * since its state is kept per thread, children are rendered sequentially.
+ * <p>
+ * Ranges are rendered without the caches of the nodes, so that the cache of a node shared by several ranges, like a
+ * subquery, is never written by several threads; nodes only record that they were rendered, a flag every thread sets
+ * to the same value. A query extracting its repeated subqueries still extracts them in a range, as it would when
+ * rendered sequentially. Children must not be modified while they are rendered.
+ */
+final class ParallelRenderer {
+
+    static final int THRESHOLD = 8192;
+
+    static final int QUERY_COST = 1024;
+
+    private static final int RANGE_COST = 1024;
+
+    private static final class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String delimiter;
+        private final List<? extends SafeSqlizable> children;
+        private final int[] bounds;
+        private final SafeSql[] segments;
+        private final int fromRange;
+        private final int toRange;
+
+        RangeTask(String delimiter, List<? extends SafeSqlizable> children, int[] bounds, SafeSql[] segments, int fromRange, int toRange) {
+            this.delimiter = delimiter;
+            this.children = children;
+            this.bounds = bounds;
+            this.segments = segments;
+            this.fromRange = fromRange;
+            this.toRange = toRange;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRange - fromRange > 1) {
+                int middle = (fromRange + toRange) >>> 1;
+                invokeAll(new RangeTask(delimiter, children, bounds, segments, fromRange, middle),
+                        new RangeTask(delimiter, children, bounds, segments, middle, toRange));
+            } else {
+                int from = bounds[fromRange];
+                int to = bounds[fromRange + 1];
+                SafeSqlBuilder sb = new SafeSqlBuilder();
+                FragmentCache.renderConcurrently(() -> {
+                    for (int i = from; i < to; i++) {
+                        if (i > from) {
+                            sb.append(delimiter);
+                        }
+                        sb.append(children.get(i));
+                    }
+                });
+                segments[fromRange] = sb.toSafeSql();
+            }
+        }
+
+    }
+
+    private ParallelRenderer() {
+    }
+
+    static <T extends SafeSqlizable> void appendJoined(SafeSqlBuilder builder, String delimiter, List<T> children, ToIntFunction<? super T> cost) {
+        appendJoined(builder, delimiter, children, cost, THRESHOLD, RANGE_COST);
+    }
+
+    static <T extends SafeSqlizable> void appendJoined(SafeSqlBuilder builder, String delimiter, List<T> children, ToIntFunction<? super T> cost,
+            int threshold, int rangeCost) {
+        if (children.size() < 2 || FragmentCache.extraction() != null) {
+            builder.appendJoined(delimiter, children);
+            return;
+        }
+        // bounds[k] is the first child of the range k, the last bound is the number of children
+        int[] bounds = new int[children.size() + 1];
+        int rangeCount = 0;
+        long totalCost = 0;
+        long currentCost = 0;
+        for (int i = 0; i < children.size(); i++) {
+            int childCost = cost.applyAsInt(children.get(i));
+            totalCost += childCost;
+            currentCost += childCost;
+            if (currentCost >= rangeCost && i + 1 < children.size()) {
+                bounds[++rangeCount] = i + 1;
+                currentCost = 0;
+            }
+        }
+        bounds[++rangeCount] = children.size();
+        if (totalCost < threshold || rangeCount == 1) {
+            builder.appendJoined(delimiter, children);
+            return;
+        }
+        SafeSql[] segments = new SafeSql[rangeCount];
+        ForkJoinPool.commonPool().invoke(new RangeTask(delimiter, children, bounds, segments, 0, rangeCount));
+        Rendering.appendJoined(builder, delimiter, segments, 0);
+    }
+
+}
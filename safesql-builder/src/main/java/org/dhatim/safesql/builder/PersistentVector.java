@@ -0,0 +1,114 @@
+package org.dhatim.safesql.builder;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list whose appends return a new list sharing the structure of the previous one.
+ * <p>
+ * Elements are stored in a trie of 32-wide nodes plus a tail of up to 32 elements, so that {@link #plus(Object)}
+ * copies at most one node per level and {@link #get(int)} walks <code>log32(size)</code> nodes.
+ */
+final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, BITS, new Object[WIDTH], new Object[0]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " in " + size + " elements");
+        }
+        if (index >= tailOffset()) {
+            return (E) tail[index & MASK];
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (E) node[index & MASK];
+    }
+
+    PersistentVector<E> plus(E element) {
+        if (size - tailOffset() < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = element;
+            return new PersistentVector<>(size + 1, shift, root, newTail);
+        }
+        // The tail is full: push it into the trie, adding a level when the root is full too
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new PersistentVector<>(size + 1, newShift, newRoot, new Object[] { element });
+    }
+
+    PersistentVector<E> plusAll(Iterable<? extends E> elements) {
+        PersistentVector<E> result = this;
+        for (E element : elements) {
+            result = result.plus(element);
+        }
+        return result;
+    }
+
+    private int tailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+        int index = ((size - 1) >>> level) & MASK;
+        Object[] result = parent.clone();
+        Object[] node;
+        if (level == BITS) {
+            node = tailNode;
+        } else {
+            Object[] child = (Object[]) parent[index];
+            node = child == null ? newPath(level - BITS, tailNode) : pushTail(level - BITS, child, tailNode);
+        }
+        result[index] = node;
+        return result;
+    }
+
+    private static Object[] newPath(int level, Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] result = new Object[WIDTH];
+        result[0] = newPath(level - BITS, node);
+        return result;
+    }
+
+}
@@ -1,8 +1,9 @@
 package org.dhatim.safesql.builder;
 
+import org.dhatim.safesql.SafeSql;
 import org.dhatim.safesql.SafeSqlBuilder;
 
-public class QueryOperand implements Operand {
+public class QueryOperand implements Operand, FragmentCache.Cacheable {
     
     private final SelectQuery query;
 
@@ -12,9 +13,17 @@ public class QueryOperand implements Operand {
 
     @Override
     public void appendTo(SafeSqlBuilder builder) {
-        builder.append('(');
-        query.appendTo(builder);
-        builder.append(')');
+        FragmentCache.append(builder, this);
+    }
+    
+    @Override
+    public void appendUncached(SafeSqlBuilder builder) {
+        SafeSql sql = SubqueryExtraction.renderSubquery(query);
+        if (SubqueryExtraction.isReference(sql)) {
+            builder.append("(SELECT * FROM ").append(sql).append(')');
+        } else {
+            builder.append('(').append(sql).append(')');
+        }
     }
 
 }
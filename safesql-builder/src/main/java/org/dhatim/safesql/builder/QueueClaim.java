@@ -0,0 +1,124 @@
+package org.dhatim.safesql.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.dhatim.safesql.SafeSqlBuilder;
+
+/**
+ * Claims a batch of rows of a queue table and marks them in a single statement:
+ * <pre>
+ * WITH claimed AS (SELECT id FROM jobs WHERE ... ORDER BY ... LIMIT 10 FOR UPDATE SKIP LOCKED)
+ * UPDATE jobs t SET ... FROM claimed WHERE t.id = claimed.id RETURNING t.*
+ * </pre>
+ * Rows locked by a concurrent claim are skipped, so workers never wait for each other and never claim the same row.
+ * Conditions, orders and assignments are written against the queue table without qualification.
+ */
+public final class QueueClaim implements WithQuery, WhereClause {
+
+    private final String schema;
+    private final String tableName;
+    private final String idColumn;
+
+    private final List<Condition> conditions = new ArrayList<>();
+    private final List<String> orderColumns = new ArrayList<>();
+    private final List<Order> orders = new ArrayList<>();
+    private final List<Assignment> assignments = new ArrayList<>();
+    private final List<String> returning = new ArrayList<>();
+    private int batchSize = 1;
+
+    private boolean rendered;
+
+    public QueueClaim(String schema, String tableName, String idColumn) {
+        this.schema = schema;
+        this.tableName = tableName;
+        this.idColumn = idColumn;
+    }
+
+    public QueueClaim(String tableName, String idColumn) {
+        this(null, tableName, idColumn);
+    }
+
+    /**
+     * Restricts the claimable rows.
+     */
+    @Override
+    public QueueClaim and(Condition condition) {
+        conditions.add(condition);
+        modified();
+        return this;
+    }
+
+    public QueueClaim orderBy(String column, Order order) {
+        orderColumns.add(column);
+        orders.add(order);
+        modified();
+        return this;
+    }
+
+    public QueueClaim batchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
+        modified();
+        return this;
+    }
+
+    /**
+     * Sets how the claimed rows are marked.
+     */
+    public QueueClaim set(Assignment... assignments) {
+        this.assignments.addAll(Arrays.asList(assignments));
+        modified();
+        return this;
+    }
+
+    /**
+     * Sets the returned columns of the claimed rows, all of them by default.
+     */
+    public QueueClaim returning(String... columns) {
+        returning.addAll(Arrays.asList(columns));
+        modified();
+        return this;
+    }
+
+    private void modified() {
+        if (rendered) {
+            rendered = false;
+            Rendering.modified();
+        }
+    }
+
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        rendered = true;
+        if (assignments.isEmpty()) {
+            throw new BuilderException("Queue claim must mark the claimed rows");
+        }
+        BuilderContext context = new BuilderContext();
+        Alias target = context.generate("t");
+        Alias claimed = context.generate("claimed");
+
+        SelectQuery claim = SelectQuery.withContext(context);
+        claim.select(idColumn).from(schema, tableName);
+        conditions.forEach(claim::and);
+        for (int i = 0; i < orders.size(); i++) {
+            claim.orderBy(orderColumns.get(i), orders.get(i));
+        }
+        claim.limit(batchSize).lock(LockStrength.UPDATE, LockWaitPolicy.SKIP_LOCKED);
+
+        UpdateQuery update = new UpdateQuery(context, schema, tableName, target);
+        update.with(claimed.getName(), claim);
+        update.set(assignments.toArray(new Assignment[assignments.size()]));
+        update.from(null, claimed.getName(), null);
+        update.and(Condition.eq(new Column(target, idColumn), new Column(claimed, idColumn)));
+        if (returning.isEmpty()) {
+            update.returning(Column.allOf(target));
+        } else {
+            returning.forEach(column -> update.returning(new Column(target, column)));
+        }
+        builder.append(update);
+    }
+
+}
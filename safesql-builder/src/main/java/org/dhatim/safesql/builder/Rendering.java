@@ -0,0 +1,60 @@
+package org.dhatim.safesql.builder;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.dhatim.safesql.SafeSql;
+import org.dhatim.safesql.SafeSqlBuilder;
+
+/**
+ * A rendered node, kept with the modification stamp it was rendered at.
+ * <p>
+ * The stamp counts the modifications of nodes made after they were rendered: nodes of this package record that they
+ * were rendered, and report their next modification with {@link #modified()}. A rendering is valid as long as the
+ * stamp did not change, so it is reused without rendering its children again. Since a node does not know the nodes
+ * including it, such a modification invalidates every rendering; modifications of nodes never rendered, like the ones
+ * of a query being built, invalidate nothing.
+ * <p>
+ * Lists given to constructors and modified afterwards, or nodes implemented outside of this package, are not tracked:
+ * {@link SelectQuery#invalidate()} must be called after modifying them. Instances are immutable and may be shared
+ * between threads.
+ */
+final class Rendering {
+
+    private static final LongAdder MODIFICATIONS = new LongAdder();
+
+    private final long stamp;
+    private final SafeSql result;
+
+    Rendering(long stamp, SafeSql result) {
+        this.stamp = stamp;
+        this.result = result;
+    }
+
+    SafeSql getResult() {
+        return result;
+    }
+
+    boolean isValid(long currentStamp) {
+        return stamp == currentStamp;
+    }
+
+    static long stamp() {
+        return MODIFICATIONS.sum();
+    }
+
+    /**
+     * Records the modification of a rendered node, invalidating every rendering made before.
+     */
+    static void modified() {
+        MODIFICATIONS.increment();
+    }
+
+    static void appendJoined(SafeSqlBuilder builder, String delimiter, SafeSql[] fragments, int from) {
+        for (int i = from; i < fragments.length; i++) {
+            if (i > from) {
+                builder.append(delimiter);
+            }
+            builder.append(fragments[i]);
+        }
+    }
+
+}
@@ -6,7 +6,7 @@ import java.util.Collections;
 import java.util.List;
 import org.dhatim.safesql.SafeSqlBuilder;
 
-public class Row implements Operand {
+public class Row implements Operand, ExpressionRenderer.Composite {
 
     private final ArrayList<Operand> elements = new ArrayList<>();
 
@@ -27,8 +27,29 @@ public class Row implements Operand {
     }
 
     @Override
-    public void appendTo(SafeSqlBuilder builder) {
-        builder.append("(").appendJoined(", ", elements).append(")");
+    public final void appendTo(SafeSqlBuilder builder) {
+        ExpressionRenderer.render(this, builder);
+    }
+    
+    @Override
+    public void addParts(ExpressionRenderer renderer) {
+        renderer.add("(").addJoined(", ", elements).add(")");
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * getClass().hashCode() + elements.hashCode();
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        return elements.equals(((Row) obj).elements);
     }
 
 }
@@ -11,6 +11,11 @@ public class SafeSqlQuery implements SqlQuery {
         this.sql = sql;
     }
 
+    @Override
+    public SafeSql toSafeSql() {
+        return sql;
+    }
+    
     @Override
     public void appendTo(SafeSqlBuilder builder) {
         builder.append(sql);
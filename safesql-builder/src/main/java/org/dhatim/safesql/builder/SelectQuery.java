@@ -1,15 +1,21 @@
 package org.dhatim.safesql.builder;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import org.dhatim.safesql.SafeSql;
 import org.dhatim.safesql.SafeSqlBuilder;
 import org.dhatim.safesql.SafeSqlizable;
 
 public class SelectQuery implements WhereClause, SqlQuery {
     
-    private static class OrderElement implements SafeSqlizable {
+    static class OrderElement implements SafeSqlizable {
         
         private final Alias alias;
         private final String column;
@@ -31,6 +37,39 @@ public class SelectQuery implements WhereClause, SqlQuery {
         
     }
     
+    static class LockingClause implements SafeSqlizable {
+        
+        private final LockStrength strength;
+        private final List<Alias> of;
+        private final LockWaitPolicy waitPolicy;
+        
+        LockingClause(LockStrength strength, List<Alias> of, LockWaitPolicy waitPolicy) {
+            this.strength = strength;
+            this.of = of;
+            this.waitPolicy = waitPolicy;
+        }
+        
+        @Override
+        public void appendTo(SafeSqlBuilder builder) {
+            builder.append(strength);
+            if (!of.isEmpty()) {
+                builder.append(" OF ").appendJoined(", ", of);
+            }
+            builder.append(waitPolicy);
+        }
+        
+    }
+    
+    private static final int CTES = 0;
+    private static final int SELECTS = 1;
+    private static final int FROMS = 2;
+    private static final int CONDITIONS = 3;
+    private static final int GROUP_BY = 4;
+    private static final int HAVINGS = 5;
+    private static final int WINDOWS = 6;
+    private static final int ORDERS = 7;
+    private static final int SEGMENT_COUNT = 8;
+    
     private final BuilderContext context;
     
     private final List<CommonTableExpression> ctes = new ArrayList<>();
@@ -40,6 +79,8 @@ public class SelectQuery implements WhereClause, SqlQuery {
 
     private final List<Condition> conditions = new ArrayList<>();
     
+    private Condition seek;
+    
     private final List<Operand> groupBy = new ArrayList<>();
     
     private final List<Condition> havings = new ArrayList<>();
@@ -48,25 +89,51 @@ public class SelectQuery implements WhereClause, SqlQuery {
     
     private boolean distinct;
     
+    private Operand totalCount;
+    
     private Integer limit;
     
     private final List<OrderElement> orders = new ArrayList<>();
     
+    private final List<LockingClause> lockings = new ArrayList<>();
+    
+    private final Rendering[] segments = new Rendering[SEGMENT_COUNT];
+    
+    private Rendering rendering;
+    
+    private boolean rendered;
+    private long ownModifications;
+    
+    private boolean simplifyConditions;
+    
+    private boolean extractSubqueries;
+    private boolean materializeSubqueries;
+    private HashMap<SubqueryExtraction.Key, String> extractedNames;
+    
     public SelectQuery() {
          this(new BuilderContext());
     }
     
     public SelectQuery(SelectQuery other) {
-        this(other.context, other.ctes, other.selects, other.froms, other.conditions, other.havings, other.groupBy, other.windows, other.distinct, other.orders, other.limit);
+        this(new BuilderContext(other.context), other.ctes, other.selects, other.froms, other.conditions, other.havings, other.groupBy, other.windows, other.distinct, other.orders, other.limit);
+        System.arraycopy(other.segments, 0, segments, 0, SEGMENT_COUNT);
+        this.rendering = other.rendering;
+        this.ownModifications = other.ownModifications;
+        this.seek = other.seek;
+        this.lockings.addAll(other.lockings);
+        this.simplifyConditions = other.simplifyConditions;
+        this.totalCount = other.totalCount;
+        this.extractSubqueries = other.extractSubqueries;
+        this.materializeSubqueries = other.materializeSubqueries;
     }
     
     private SelectQuery(BuilderContext context) {
         this.context = context;
     }
     
-    private SelectQuery(BuilderContext context, List<CommonTableExpression> ctes, List<Operand> selects, List<From> froms, List<Condition> conditions, 
+    SelectQuery(BuilderContext context, List<CommonTableExpression> ctes, List<Operand> selects, List<From> froms, List<Condition> conditions, 
             List<Condition> havings, List<Operand> groupBy, List<NamedWindow> windows, boolean distinct, List<OrderElement> orders, Integer limit) {
-        this(new BuilderContext(context));
+        this(context);
         this.ctes.addAll(ctes);
         this.selects.addAll(selects);
         this.froms.addAll(froms);
@@ -81,20 +148,24 @@ public class SelectQuery implements WhereClause, SqlQuery {
 
     public SelectQuery select(Operand operand) {
         selects.add(operand);
+        invalidate(SELECTS);
         return this;
     }
     
     public void clearSelects() {
         selects.clear();
+        invalidate(SELECTS);
     }
     
-    public SelectQuery with(String name, SqlQuery query) {
+    public SelectQuery with(String name, WithQuery query) {
         ctes.add(new CommonTableExpression(name, query));
+        invalidate(CTES);
         return this;
     }
     
-    public SelectQuery with(String name, List<String> columnNames, SqlQuery query) {
+    public SelectQuery with(String name, List<String> columnNames, WithQuery query) {
         ctes.add(new CommonTableExpression(name, columnNames, query));
+        invalidate(CTES);
         return this;
     }
     
@@ -144,25 +215,30 @@ public class SelectQuery implements WhereClause, SqlQuery {
     
     public void clearFroms() {
         froms.clear();
+        invalidate(FROMS);
     }
 
     private From from(From from) {
         froms.add(from);
+        invalidate(FROMS);
         return from;
     }
     
     public SelectQuery groupBy(Column... columns) {
         groupBy.addAll(Arrays.asList(columns));
+        invalidate(GROUP_BY);
         return this;
     }
     
     public SelectQuery groupBy(Column column) {
         groupBy.add(column);
+        invalidate(GROUP_BY);
         return this;
     }
     
     public void clearGroupBys() {
         groupBy.clear();
+        invalidate(GROUP_BY);
     }
 
     public SelectQuery having(Condition condition) {
@@ -175,6 +251,7 @@ public class SelectQuery implements WhereClause, SqlQuery {
             @Override
             public Having and(Condition condition) {
                 havings.add(condition);
+                invalidate(HAVINGS);
                 return this;
             }
         };
@@ -182,20 +259,24 @@ public class SelectQuery implements WhereClause, SqlQuery {
     
     public void clearHavings() {
         havings.clear();
+        invalidate(HAVINGS);
     }
     
     public SelectQuery windows(NamedWindow... namedWindows) {
         windows.addAll(Arrays.asList(namedWindows));
+        invalidate(WINDOWS);
         return this;
     }
     
     public SelectQuery window(NamedWindow window) {
         windows.add(window);
+        invalidate(WINDOWS);
         return this;
     }
     
     public void clearWindows() {
         windows.clear();
+        invalidate(WINDOWS);
     }
     
     public Alias generate() {
@@ -214,74 +295,544 @@ public class SelectQuery implements WhereClause, SqlQuery {
         return context.generateIdentifier(suggestion);
     }
 
+    /**
+     * Returns the rendered query. The rendering is cached clause by clause: a clause is only rendered again when it
+     * was modified through this query, or when a node rendered since, anywhere, was modified, as explained in
+     * {@link #invalidate()}. Re-rendering a query after changing its limit only appends the cached clauses.
+     * 
+     * @return the rendered query
+     */
     @Override
-    public void appendTo(SafeSqlBuilder sb) {
-        if (!ctes.isEmpty()) {
-            sb.append("WITH ");
-            sb.appendJoined(", ", ctes);
-            sb.append(" ");
+    public SafeSql toSafeSql() {
+        rendered = true;
+        SubqueryExtraction extraction = FragmentCache.extraction();
+        if (extraction != null) {
+            return extraction.renderQuery(this);
         }
-        sb.append("SELECT ");
-        if (distinct) {
-            sb.append("DISTINCT ");
+        if (extractSubqueries) {
+            SafeSql result = SubqueryExtraction.extract(this, this::extractedName, materializeSubqueries);
+            if (result != null) {
+                return result;
+            }
+        }
+        if (!FragmentCache.usesNodeCaches()) {
+            return renderClauses(Collections.emptyList());
         }
-        sb.appendJoined(", ", selects);
-        if (!froms.isEmpty()) {
-            sb.append(" FROM ").appendJoined(", ", froms);
+        return FragmentCache.render(this::render);
+    }
+    
+    /**
+     * Renders the subqueries found two times or more in this query, compared by their SQL and parameters, once in
+     * common table expressions named by the context of this query. The query is rendered twice to find them, so this
+     * is only worth it when the subqueries are expensive to evaluate. Correlated subqueries, which render an alias
+     * they do not declare, are left in place.
+     * 
+     * @param materialized whether the expressions are marked <code>MATERIALIZED</code>
+     * @return this query
+     */
+    public SelectQuery extractRepeatedSubqueries(boolean materialized) {
+        this.extractSubqueries = true;
+        this.materializeSubqueries = materialized;
+        modified();
+        return this;
+    }
+    
+    // Parallel renderings of this query may name their expressions at the same time
+    private synchronized String extractedName(SubqueryExtraction.Key key) {
+        if (extractedNames == null) {
+            extractedNames = new HashMap<>();
+        }
+        return extractedNames.computeIfAbsent(key, k -> context.generateIdentifier("cte"));
+    }
+    
+    private SafeSql render() {
+        // Modifications made through this query are not counted, they only invalidate the clauses they modify
+        long stamp = Rendering.stamp() - ownModifications;
+        Rendering r = rendering;
+        if (r != null && r.isValid(stamp)) {
+            return r.getResult();
         }
-        if (!conditions.isEmpty()) {
-            sb.append(" WHERE ").appendJoined(" AND ", conditions);
+        SafeSqlBuilder sb = new SafeSqlBuilder();
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            sb.append(renderSegment(i, stamp));
         }
-        if (!groupBy.isEmpty()) {
-            sb.append(" GROUP BY ").appendJoined(", ", groupBy);
+        appendLimitAndLockings(sb);
+        SafeSql result = sb.toSafeSql();
+        rendering = new Rendering(stamp, result);
+        return result;
+    }
+    
+    @Override
+    public void appendTo(SafeSqlBuilder sb) {
+        sb.append(toSafeSql());
+    }
+    
+    /**
+     * Discards the cached renderings of this query and of the nodes including it, or any other node.
+     * <p>
+     * Nodes of this package report their modifications: a rendering is kept until the query is modified, or until a
+     * node rendered since, like a subquery or a condition group, is modified anywhere. This method must be called
+     * after modifying a list given to the constructor of a node, or a node implemented outside of this package.
+     */
+    public void invalidate() {
+        clearRenderings();
+        Rendering.modified();
+    }
+    
+    private void clearRenderings() {
+        Arrays.fill(segments, null);
+        rendering = null;
+    }
+    
+    private void invalidate(int segment) {
+        segments[segment] = null;
+        modified();
+    }
+    
+    private void modified() {
+        rendering = null;
+        if (rendered) {
+            rendered = false;
+            ownModifications++;
+            Rendering.modified();
         }
-        if (!havings.isEmpty()) {
-            sb.append(" HAVING ").appendJoined(" AND ", havings);
+    }
+    
+    private SafeSql renderSegment(int segment, long stamp) {
+        Rendering r = segments[segment];
+        if (r != null && r.isValid(stamp)) {
+            return r.getResult();
         }
-        if (!windows.isEmpty()) {
-            sb.append(" WINDOW ").appendJoined(", ", windows);
+        SafeSqlBuilder sb = new SafeSqlBuilder();
+        appendSegment(sb, segment, ctes);
+        SafeSql result = sb.toSafeSql();
+        segments[segment] = new Rendering(stamp, result);
+        return result;
+    }
+    
+    /**
+     * Renders the query without its caches, with additional common table expressions.
+     */
+    SafeSql renderClauses(List<CommonTableExpression> extraCtes) {
+        List<CommonTableExpression> allCtes = ctes;
+        if (!extraCtes.isEmpty()) {
+            allCtes = new ArrayList<>(extraCtes);
+            allCtes.addAll(ctes);
         }
-        if (!orders.isEmpty()) {
-            sb.append(" ORDER BY ").appendJoined(", ", orders);
+        SafeSqlBuilder sb = new SafeSqlBuilder();
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            appendSegment(sb, i, allCtes);
         }
+        appendLimitAndLockings(sb);
+        return sb.toSafeSql();
+    }
+    
+    private void appendLimitAndLockings(SafeSqlBuilder sb) {
         if (limit != null) {
-            sb.append(" LIMIT " + limit);
+            sb.append(" LIMIT ").append(limit);
+        }
+        for (LockingClause locking : lockings) {
+            sb.append(' ').append(locking);
+        }
+    }
+    
+    private void appendSegment(SafeSqlBuilder sb, int segment, List<CommonTableExpression> allCtes) {
+        switch (segment) {
+            case CTES:
+                if (!allCtes.isEmpty()) {
+                    sb.append("WITH ").appendJoined(", ", allCtes).append(" ");
+                }
+                break;
+            case SELECTS:
+                sb.append("SELECT ");
+                if (distinct) {
+                    sb.append("DISTINCT ");
+                }
+                sb.appendJoined(", ", selects);
+                break;
+            case FROMS:
+                if (!froms.isEmpty()) {
+                    sb.append(" FROM ").appendJoined(", ", froms);
+                }
+                break;
+            case CONDITIONS:
+                appendConditions(sb, " WHERE ", allConditions());
+                break;
+            case GROUP_BY:
+                if (!groupBy.isEmpty()) {
+                    sb.append(" GROUP BY ").appendJoined(", ", groupBy);
+                }
+                break;
+            case HAVINGS:
+                appendConditions(sb, " HAVING ", havings);
+                break;
+            case WINDOWS:
+                if (!windows.isEmpty()) {
+                    sb.append(" WINDOW ").appendJoined(", ", windows);
+                }
+                break;
+            case ORDERS:
+                if (!orders.isEmpty()) {
+                    sb.append(" ORDER BY ").appendJoined(", ", orders);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown segment " + segment);
         }
     }
 
+    private void appendConditions(SafeSqlBuilder sb, String keyword, List<Condition> clauseConditions) {
+        List<Condition> terms = simplifyConditions ? ConditionSimplifier.simplifyConjunction(clauseConditions) : clauseConditions;
+        if (!terms.isEmpty()) {
+            sb.append(keyword).appendJoined(" AND ", terms);
+        }
+    }
+    
+    /**
+     * Simplifies the conditions of the <code>WHERE</code> and <code>HAVING</code> clauses when rendering this query.
+     * 
+     * @return this query
+     * @see ConditionSimplifier
+     */
+    public SelectQuery simplifyConditions() {
+        simplifyConditions = true;
+        invalidate(CONDITIONS);
+        invalidate(HAVINGS);
+        return this;
+    }
+    
     @Override
     public SelectQuery and(Condition condition) {
         conditions.add(condition);
+        invalidate(CONDITIONS);
+        return this;
+    }
+    
+    /**
+     * Returns the aliases of the froms and jointures of this query.
+     */
+    Set<Alias> declaredAliases() {
+        Set<Alias> result = new HashSet<>();
+        ArrayDeque<AbstractHasJointure> stack = new ArrayDeque<>(froms);
+        while (!stack.isEmpty()) {
+            AbstractHasJointure node = stack.pop();
+            Alias alias = node instanceof From ? ((From) node).getAlias() : ((Jointure) node).getAlias();
+            if (alias != null) {
+                result.add(alias);
+            }
+            stack.addAll(node.getJointures());
+        }
+        return result;
+    }
+    
+    private List<Condition> allConditions() {
+        if (seek == null) {
+            return conditions;
+        }
+        List<Condition> result = new ArrayList<>(conditions.size() + 1);
+        result.addAll(conditions);
+        result.add(seek);
+        return result;
+    }
+    
+    /**
+     * Restricts the query to the page of rows following the given one in the order of the given columns, to paginate
+     * without <code>OFFSET</code>. The columns must be the first ones of the order of this query, in the same order,
+     * and their direction is taken from it; columns beyond the current order are added to it in ascending order.
+     * Columns sorted in the same direction are compared as a row, like <code>(a, b) &gt; (?, ?)</code>, which can use
+     * a matching index; mixed directions are expanded into <code>a &gt; ? OR (a = ? AND b &lt; ?)</code>. A new call
+     * replaces the previous restriction and limit.
+     * <p>
+     * The columns should identify rows uniquely, and must not be nullable.
+     * 
+     * @param orderColumns columns identifying the last row of the previous page
+     * @param lastValues values of these columns in the last row of the previous page, as values or operands
+     * @param pageSize maximum number of rows of the page
+     * @return this query
+     * @throws BuilderException if the columns do not match the order of this query
+     */
+    public SelectQuery seekAfter(List<Column> orderColumns, List<?> lastValues, int pageSize) {
+        if (orderColumns.isEmpty()) {
+            throw new IllegalArgumentException("At least one order column is required");
+        }
+        if (orderColumns.size() != lastValues.size()) {
+            throw new IllegalArgumentException("Expected " + orderColumns.size() + " values, got " + lastValues.size());
+        }
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        for (int i = 0; i < orderColumns.size() && i < orders.size(); i++) {
+            Column column = orderColumns.get(i);
+            OrderElement element = orders.get(i);
+            if (!element.column.equals(column.getName()) || !Objects.equals(element.alias, column.getAlias())) {
+                throw new BuilderException("Column " + column.toSafeSql().asSql() + " is not at position " + (i + 1) + " of the order of the query");
+            }
+        }
+        for (int i = orders.size(); i < orderColumns.size(); i++) {
+            Column column = orderColumns.get(i);
+            orderBy(column.getAlias(), column.getName(), Order.ASC);
+        }
+        List<Order> directions = new ArrayList<>(orderColumns.size());
+        boolean sameDirection = true;
+        for (int i = 0; i < orderColumns.size(); i++) {
+            Order order = orders.get(i).order;
+            sameDirection &= order == orders.get(0).order;
+            directions.add(order);
+        }
+        List<Operand> values = new ArrayList<>(lastValues.size());
+        for (Object value : lastValues) {
+            values.add(value instanceof Operand ? (Operand) value : new Value(value));
+        }
+        if (sameDirection) {
+            ComparisonOperator operator = after(directions.get(0));
+            seek = orderColumns.size() == 1
+                    ? Condition.create(orderColumns.get(0), operator, values.get(0))
+                    : Condition.create(new Row(new ArrayList<>(orderColumns)), operator, new Row(values));
+        } else {
+            List<Condition> alternatives = new ArrayList<>(orderColumns.size());
+            for (int i = 0; i < orderColumns.size(); i++) {
+                List<Condition> terms = new ArrayList<>(i + 1);
+                for (int j = 0; j < i; j++) {
+                    terms.add(Condition.eq(orderColumns.get(j), values.get(j)));
+                }
+                terms.add(Condition.create(orderColumns.get(i), after(directions.get(i)), values.get(i)));
+                alternatives.add(Condition.and(terms));
+            }
+            seek = Condition.or(alternatives);
+        }
+        invalidate(CONDITIONS);
+        return limit(pageSize);
+    }
+    
+    public SelectQuery clearSeek() {
+        seek = null;
+        invalidate(CONDITIONS);
         return this;
     }
     
+    private static ComparisonOperator after(Order order) {
+        return order == Order.DESC ? ComparisonOperator.LT : ComparisonOperator.GT;
+    }
+    
     public SelectQuery distinct() {
+        if (totalCount != null) {
+            throw new BuilderException("Total count of a distinct query would count the rows before removing duplicates");
+        }
         this.distinct = true;
+        invalidate(SELECTS);
         return this;
     }
     
     public SelectQuery limit(int limit) {
         this.limit = limit;
+        modified();
         return this;
     }
     
     public SelectQuery noLimit() {
         this.limit = null;
+        modified();
+        return this;
+    }
+    
+    /**
+     * Adds a locking clause, like <code>FOR UPDATE SKIP LOCKED</code>, locking the selected rows of the given froms,
+     * or of all the froms if none is given.
+     * 
+     * @param strength strength of the locks
+     * @param waitPolicy what to do with rows already locked by another transaction
+     * @param of aliases of the locked froms
+     * @return this query
+     */
+    public SelectQuery lock(LockStrength strength, LockWaitPolicy waitPolicy, Alias... of) {
+        lockings.add(new LockingClause(strength, Arrays.asList(of), waitPolicy));
+        modified();
+        return this;
+    }
+    
+    public SelectQuery forUpdate() {
+        return lock(LockStrength.UPDATE, LockWaitPolicy.WAIT);
+    }
+    
+    public SelectQuery clearLockings() {
+        lockings.clear();
+        modified();
+        return this;
+    }
+    
+    public SelectQuery clearOrders() {
+        orders.clear();
+        invalidate(ORDERS);
         return this;
     }
     
+    /**
+     * Adds the total number of rows matched by this query, whatever its limit, to each returned row with
+     * <code>count(*) OVER ()</code>, so that a page and the total are read in a single query. The window is evaluated
+     * before duplicates are removed, so distinct queries cannot have a total count. A new call replaces the count
+     * column added before, at the same position.
+     * 
+     * @param alias alias of the count column
+     * @return this query
+     * @throws BuilderException if this query is distinct
+     */
+    public SelectQuery withTotalCount(Alias alias) {
+        if (distinct) {
+            throw new BuilderException("Total count of a distinct query would count the rows before removing duplicates");
+        }
+        Operand previous = totalCount;
+        totalCount = new NamedOperand(new Over(new Call("count", new Constant("*")), new Window(Collections.emptyList())), alias);
+        for (int i = 0; i < selects.size(); i++) {
+            if (selects.get(i) == previous) {
+                selects.set(i, totalCount);
+                invalidate(SELECTS);
+                return this;
+            }
+        }
+        return select(totalCount);
+    }
+    
+    public SelectQuery toCountQuery() {
+        return toCountQuery(false);
+    }
+    
+    /**
+     * Derives the query counting the rows of this query, regardless of its order, limit and {@link #seekAfter seek}
+     * restriction. The select list is dropped, unless the query is distinct or grouped, in which case it is counted as
+     * a subquery without its {@link #withTotalCount total count} column.
+     * 
+     * @param dropUnreferencedLeftJoins whether aliased LEFT JOINs whose alias is not rendered by the rest of the query
+     * are removed; this only keeps the count right when each of them matches at most one row, like a join on a unique
+     * key; a jointure is kept when its alias is found by name in the rendered SQL of the rest of the query
+     * @return a new query
+     */
+    public SelectQuery toCountQuery(boolean dropUnreferencedLeftJoins) {
+        SelectQuery count;
+        if (distinct || !groupBy.isEmpty() || !havings.isEmpty()) {
+            SelectQuery counted = new SelectQuery(this);
+            counted.ctes.clear();
+            counted.orders.clear();
+            counted.limit = null;
+            counted.seek = null;
+            counted.lockings.clear();
+            counted.selects.removeIf(select -> select == totalCount);
+            if (counted.selects.isEmpty()) {
+                counted.selects.add(new Constant("1"));
+            }
+            counted.clearRenderings();
+            count = new SelectQuery(new BuilderContext(context));
+            count.ctes.addAll(ctes);
+            count.from(counted, count.generate("counted"));
+        } else {
+            count = new SelectQuery(this);
+            count.selects.clear();
+            count.orders.clear();
+            count.limit = null;
+            count.seek = null;
+            count.lockings.clear();
+            count.totalCount = null;
+            count.clearRenderings();
+            if (dropUnreferencedLeftJoins) {
+                count.dropUnreferencedLeftJoins();
+            }
+        }
+        return count.select(new Call("count", new Constant("*")));
+    }
+    
+    private void dropUnreferencedLeftJoins() {
+        Set<Jointure> dropped = new HashSet<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (From from : froms) {
+                for (Jointure jointure : from.getJointures()) {
+                    if (!dropped.contains(jointure) && jointure.getType() == JointureType.LEFT_OUTER && jointure.getAlias() != null
+                            && !jointure.hasJointures() && !isReferenced(jointure, dropped)) {
+                        dropped.add(jointure);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        if (!dropped.isEmpty()) {
+            froms.replaceAll(from -> from.withoutJointures(dropped));
+        }
+    }
+    
+    /**
+     * Tells whether the alias of a jointure may be referenced by the rest of the query, its windows and subqueries
+     * included, looking for its name in the rendered SQL.
+     */
+    private boolean isReferenced(Jointure jointure, Set<Jointure> dropped) {
+        List<SafeSqlizable> nodes = new ArrayList<>(allConditions());
+        nodes.addAll(groupBy);
+        nodes.addAll(havings);
+        nodes.addAll(windows);
+        for (From from : froms) {
+            nodes.add(builder -> builder.append(from.renderSource()));
+            for (Jointure other : from.getJointures()) {
+                if (other != jointure && !dropped.contains(other)) {
+                    nodes.add(other);
+                }
+            }
+        }
+        return jointure.getAlias().isReferencedBy(new SafeSqlBuilder().appendJoined(" ", nodes).toSafeSql());
+    }
+    
     public SelectQuery orderBy(String column, Order order) {
         orders.add(new OrderElement(null, column, order));
+        invalidate(ORDERS);
         return this;
     }
     
     public SelectQuery orderBy(Alias alias, String column, Order order) {
         orders.add(new OrderElement(alias, column, order));
+        invalidate(ORDERS);
         return this;
     }
     
+    /**
+     * Returns an immutable snapshot of this query, from which variants can be derived cheaply.
+     * 
+     * @return an immutable copy of this query
+     * @throws BuilderException if this query has locking clauses
+     */
+    public ImmutableSelectQuery toImmutable() {
+        if (!lockings.isEmpty()) {
+            throw new BuilderException("Immutable queries do not support locking clauses");
+        }
+        List<Condition> immutableConditions = allConditions();
+        List<Condition> immutableHavings = havings;
+        if (simplifyConditions) {
+            immutableConditions = ConditionSimplifier.simplifyConjunction(immutableConditions);
+            immutableHavings = ConditionSimplifier.simplifyConjunction(immutableHavings);
+        }
+        return new ImmutableSelectQuery(new BuilderContext(context, true), ctes, selects, froms, immutableConditions, immutableHavings, groupBy, windows, distinct, orders, limit);
+    }
+    
+    /**
+     * Renders this query once, keeping its slots to be bound for each execution.
+     * 
+     * @return the compiled query
+     * @see Value#slot(String)
+     */
+    public CompiledQuery compile() {
+        return CompiledQuery.of(this);
+    }
+    
     public static SelectQuery withContextOf(SelectQuery other) {
         return new SelectQuery(other.context);
     }
+    
+    /**
+     * Creates an empty query generating its aliases from the given context.
+     * 
+     * @param context context shared with other queries, like a {@link BuilderContext#concurrent() concurrent} one
+     * @return a new query
+     */
+    public static SelectQuery withContext(BuilderContext context) {
+        Objects.requireNonNull(context, "Context must be not null");
+        return new SelectQuery(context);
+    }
 
 }
@@ -0,0 +1,39 @@
+package org.dhatim.safesql.builder;
+
+import org.dhatim.safesql.SafeSql;
+import org.dhatim.safesql.SafeSqlBuilder;
+import org.dhatim.safesql.SafeSqlUtils;
+
+public enum SetOperator implements Operator {
+    UNION("UNION"),
+    UNION_ALL("UNION ALL"),
+    INTERSECT("INTERSECT"),
+    EXCEPT("EXCEPT");
+
+    private String sql;
+    private String spacedSql;
+
+    private SetOperator(String sql) {
+        this.sql = sql;
+        this.spacedSql = " " + sql + " ";
+    }
+    
+    String getSpacedSql() {
+        return spacedSql;
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+
+    @Override
+    public SafeSql toSafeSql() {
+        return SafeSqlUtils.fromConstant(sql);
+    }
+    
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        builder.append(sql);
+    }
+}
@@ -0,0 +1,64 @@
+package org.dhatim.safesql.builder;
+
+import java.util.Objects;
+import org.dhatim.safesql.SafeSql;
+import org.dhatim.safesql.SafeSqlBuilder;
+import org.dhatim.safesql.SafeSqlLiteralizable;
+import org.dhatim.safesql.SafeSqlUtils;
+
+/**
+ * A named placeholder, rendered as a parameter whose value is bound later by a {@link CompiledQuery}.
+ */
+final class Slot extends Value implements SafeSqlLiteralizable {
+
+    private final String name;
+
+    Slot(String name) {
+        super(null);
+        Objects.requireNonNull(name, "Slot name must be not null");
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Slot name must be not empty");
+        }
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    @Override
+    public Object value() {
+        return this;
+    }
+
+    @Override
+    public SafeSql toSafeSql() {
+        return SafeSqlUtils.escape(this);
+    }
+
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        builder.param(this);
+    }
+
+    @Override
+    public void appendLiteralized(SafeSqlBuilder sb) {
+        sb.append(':').append(name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this || (obj instanceof Slot && ((Slot) obj).name.equals(name));
+    }
+
+    @Override
+    public String toString() {
+        return "Slot{" + name + "}";
+    }
+
+}
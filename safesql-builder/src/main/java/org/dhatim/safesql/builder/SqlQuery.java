@@ -3,7 +3,7 @@ package org.dhatim.safesql.builder;
 import org.dhatim.safesql.SafeSql;
 import org.dhatim.safesql.SafeSqlizable;
 
-public interface SqlQuery extends Expression {
+public interface SqlQuery extends WithQuery {
 
     static SqlQuery fromSqlizable(SafeSqlizable sqlizable) {
         return sqlizable::appendTo;
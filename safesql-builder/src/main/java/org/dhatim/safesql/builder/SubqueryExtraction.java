@@ -0,0 +1,158 @@
+package org.dhatim.safesql.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.dhatim.safesql.SafeSql;
+import org.dhatim.safesql.SafeSqlUtils;
+
+/**
+ * Extracts the repeated subqueries of a query into common table expressions.
+ * <p>
+ * The query is rendered twice. The first pass renders every subquery, counting them by rendered SQL and parameters.
+ * The second pass replaces the subqueries found twice or more by references to their expressions. A subquery
+ * containing an alias declared by an enclosing query may reference it, so it is never extracted; aliases are found in
+ * the rendered SQL by name, see {@link Alias#isReferencedBy(SafeSql)}.
+ */
+final class SubqueryExtraction {
+
+    /**
+     * A rendered subquery, compared by SQL and parameters.
+     */
+    static final class Key {
+
+        private final String sql;
+        private final Object[] parameters;
+
+        Key(SafeSql rendering) {
+            this.sql = rendering.asSql();
+            this.parameters = rendering.getParameters();
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sql.hashCode() + Arrays.deepHashCode(parameters);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj instanceof Key) {
+                Key other = (Key) obj;
+                return sql.equals(other.sql) && Arrays.deepEquals(parameters, other.parameters);
+            }
+            return false;
+        }
+
+    }
+
+    private final IdentityHashMap<SqlQuery, Key> keys = new IdentityHashMap<>();
+    private final LinkedHashMap<Key, SqlQuery> occurrences = new LinkedHashMap<>();
+    private final HashMap<Key, Integer> counts = new HashMap<>();
+    private final Set<Key> correlated = new HashSet<>();
+    private final ArrayList<Alias> enclosingAliases = new ArrayList<>();
+
+    private Map<Key, String> names;
+    private Set<SafeSql> references;
+
+    private SubqueryExtraction() {
+    }
+
+    /**
+     * Renders a query with its repeated subqueries extracted into common table expressions.
+     *
+     * @param query query to render
+     * @param naming gives the name of the common table expression of a subquery
+     * @param materialized whether the extracted expressions are marked as materialized
+     * @return the rendered query, or {@code null} if it has no repeated subquery
+     */
+    static SafeSql extract(SelectQuery query, Function<Key, String> naming, boolean materialized) {
+        SubqueryExtraction extraction = new SubqueryExtraction();
+        return FragmentCache.extract(extraction, () -> extraction.run(query, naming, materialized));
+    }
+
+    private SafeSql run(SelectQuery query, Function<Key, String> naming, boolean materialized) {
+        renderQuery(query);
+        names = new HashMap<>();
+        for (Key key : occurrences.keySet()) {
+            if (counts.get(key) > 1 && !correlated.contains(key)) {
+                names.put(key, naming.apply(key));
+            }
+        }
+        if (names.isEmpty()) {
+            return null;
+        }
+        references = Collections.newSetFromMap(new IdentityHashMap<>());
+        // Occurrences are recorded once rendered, so a subquery nested in another one comes first
+        List<CommonTableExpression> extracted = new ArrayList<>(names.size());
+        for (Map.Entry<Key, SqlQuery> occurrence : occurrences.entrySet()) {
+            String name = names.get(occurrence.getKey());
+            if (name != null) {
+                SqlQuery body = SqlQuery.of(occurrence.getValue().toSafeSql());
+                extracted.add(new CommonTableExpression(name, Collections.emptyList(), body, materialized));
+            }
+        }
+        return query.renderClauses(extracted);
+    }
+
+    /**
+     * Renders a query met while extracting, recording the aliases it declares for its subqueries.
+     */
+    SafeSql renderQuery(SelectQuery query) {
+        int size = enclosingAliases.size();
+        enclosingAliases.addAll(query.declaredAliases());
+        try {
+            return query.renderClauses(Collections.emptyList());
+        } finally {
+            enclosingAliases.subList(size, enclosingAliases.size()).clear();
+        }
+    }
+
+    /**
+     * Renders a subquery, or returns a reference to the common table expression replacing it, outside of an
+     * extraction too.
+     *
+     * @see #isReference(SafeSql)
+     */
+    static SafeSql renderSubquery(SqlQuery query) {
+        SubqueryExtraction extraction = FragmentCache.extraction();
+        return extraction == null ? query.toSafeSql() : extraction.render(query);
+    }
+
+    private SafeSql render(SqlQuery query) {
+        if (names == null) {
+            SafeSql sql = query.toSafeSql();
+            Key key = new Key(sql);
+            keys.put(query, key);
+            occurrences.putIfAbsent(key, query);
+            counts.merge(key, 1, Integer::sum);
+            if (enclosingAliases.stream().anyMatch(alias -> alias.isReferencedBy(sql))) {
+                correlated.add(key);
+            }
+            return sql;
+        }
+        String name = names.get(keys.get(query));
+        if (name == null) {
+            return query.toSafeSql();
+        }
+        SafeSql reference = SafeSqlUtils.fromIdentifier(name);
+        references.add(reference);
+        return reference;
+    }
+
+    static boolean isReference(SafeSql sql) {
+        SubqueryExtraction extraction = FragmentCache.extraction();
+        return extraction != null && extraction.references != null && extraction.references.contains(sql);
+    }
+
+}
@@ -3,6 +3,7 @@ package org.dhatim.safesql.builder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import org.dhatim.safesql.SafeSqlBuilder;
 import org.dhatim.safesql.SafeSqlizable;
 
@@ -12,6 +13,8 @@ public class Template {
         
         SafeSqlizable generate(Operand[] parameters);
         
+        void render(SafeSqlBuilder builder, Operand[] parameters);
+        
     }
     
     private static class Parameter implements Element {
@@ -30,18 +33,32 @@ public class Template {
             return parameters[index - 1];
         }
         
+        @Override
+        public void render(SafeSqlBuilder builder, Operand[] parameters) {
+            builder.append(generate(parameters));
+        }
+        
     }
     
     private static class Constant extends org.dhatim.safesql.builder.Constant implements Element {
 
+        private final String sql;
+        
         public Constant(String sql) {
             super(sql);
+            this.sql = sql;
         }
         
+        @Override
         public SafeSqlizable generate(Operand[] parameters) {
             return this;
         }
         
+        @Override
+        public void render(SafeSqlBuilder builder, Operand[] parameters) {
+            builder.append(sql);
+        }
+        
     }
     
     protected class TemplateOperand implements Operand {
@@ -65,12 +82,22 @@ public class Template {
         
     }
     
+    static final int MAX_CACHED_TEMPLATES = 1024;
+    
+    /**
+     * Compiled templates, all dropped when the cache is full: lookups never wait for each other, and templates still
+     * in use are compiled again once.
+     */
+    private static final ConcurrentHashMap<String, Template> CACHE = new ConcurrentHashMap<>();
+    
     private final String pattern;
-    private final ArrayList<Element> elements = new ArrayList<>();
+    private final Element[] elements;
     
     protected Template(String pattern) {
         this.pattern = pattern;
-        compile(pattern, elements);
+        ArrayList<Element> list = new ArrayList<>();
+        compile(pattern, list);
+        this.elements = list.toArray(new Element[list.size()]);
     }
     
     protected void compile(String pattern, List<Element> toList) {
@@ -96,8 +123,27 @@ public class Template {
         return pattern;
     }
 
+    /**
+     * Returns the template of the given pattern. Templates are immutable, so they are shared through a cache of about
+     * {@value #MAX_CACHED_TEMPLATES} patterns at most.
+     * 
+     * @param pattern template pattern, with 1-based parameter indexes between braces
+     * @return the template
+     */
     public static Template of(String pattern) {
-        return new Template(pattern);
+        Template template = CACHE.get(pattern);
+        if (template == null) {
+            if (CACHE.size() >= MAX_CACHED_TEMPLATES) {
+                CACHE.clear();
+            }
+            // A concurrent call may compile the same pattern, only one of them is kept
+            Template compiled = new Template(pattern);
+            template = CACHE.putIfAbsent(pattern, compiled);
+            if (template == null) {
+                template = compiled;
+            }
+        }
+        return template;
     }
     
     private static Parameter toParameter(String value) {
@@ -109,13 +155,25 @@ public class Template {
     }
     
     public Operand generate(Operand... parameters) {
-        SafeSqlizable[] parts = new SafeSqlizable[elements.size()];
-        for (int i=0; i<elements.size(); i++) {
-            parts[i] = elements.get(i).generate(parameters);
+        SafeSqlizable[] parts = new SafeSqlizable[elements.length];
+        for (int i=0; i<elements.length; i++) {
+            parts[i] = elements[i].generate(parameters);
         }
         return create(parts);
     }
     
+    /**
+     * Appends the template with the given parameters, without creating an intermediate operand.
+     * 
+     * @param builder builder where the template is appended
+     * @param parameters template parameters
+     */
+    public void render(SafeSqlBuilder builder, Operand... parameters) {
+        for (Element element : elements) {
+            element.render(builder, parameters);
+        }
+    }
+    
     protected Operand create(SafeSqlizable[] parts) {
         return new TemplateOperand(parts);
     }
@@ -0,0 +1,85 @@
+package org.dhatim.safesql.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.dhatim.safesql.SafeSqlBuilder;
+
+/**
+ * Tests whether a tuple of columns is one of a set of keys: <code>(a, b) IN (SELECT * FROM unnest(?::int8[],
+ * ?::text[]))</code>, or <code>(a, b) IN (VALUES (?, ?), (?, ?))</code> when the types of the keys are unknown.
+ */
+public class TupleInCondition implements Condition {
+
+    private final List<Column> columns;
+    private final boolean notIn;
+    private final SqlQuery keys;
+
+    private TupleInCondition(List<Column> columns, boolean notIn, SqlQuery keys) {
+        this.columns = columns;
+        this.notIn = notIn;
+        this.keys = keys;
+    }
+
+    static Condition of(List<Column> columns, List<String> sqlTypes, Stream<Object[]> keys) {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("Tuple must have at least one column");
+        }
+        List<Column> tuple = new ArrayList<>(columns);
+        if (sqlTypes != null) {
+            if (sqlTypes.size() != columns.size()) {
+                throw new IllegalArgumentException("Expected " + columns.size() + " types, got " + sqlTypes.size());
+            }
+            List<List<Object>> arrays = new ArrayList<>(columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                arrays.add(new ArrayList<>());
+            }
+            keys.forEachOrdered(key -> {
+                checkLength(key, columns.size());
+                for (int i = 0; i < key.length; i++) {
+                    arrays.get(i).add(key[i]);
+                }
+            });
+            if (arrays.get(0).isEmpty()) {
+                return new BooleanValue(false);
+            }
+            return new TupleInCondition(tuple, false, new Unnest(sqlTypes, arrays));
+        } else {
+            List<Row> rows = new ArrayList<>();
+            keys.forEachOrdered(key -> {
+                checkLength(key, columns.size());
+                List<Operand> values = new ArrayList<>(key.length);
+                for (Object value : key) {
+                    values.add(new Value(value));
+                }
+                rows.add(new Row(values));
+            });
+            if (rows.isEmpty()) {
+                return new BooleanValue(false);
+            }
+            return new TupleInCondition(tuple, false, new Values(rows));
+        }
+    }
+
+    private static void checkLength(Object[] key, int length) {
+        if (key.length != length) {
+            throw new IllegalArgumentException("Expected keys of " + length + " values, got " + key.length);
+        }
+    }
+
+    @Override
+    public Condition negate() {
+        return new TupleInCondition(columns, !notIn, keys);
+    }
+
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        if (columns.size() == 1) {
+            builder.append(columns.get(0));
+        } else {
+            builder.appendJoined(", ", "(", ")", columns);
+        }
+        builder.append(notIn ? " NOT IN (" : " IN (").append(keys).append(')');
+    }
+
+}
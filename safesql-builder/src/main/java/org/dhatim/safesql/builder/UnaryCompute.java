@@ -2,7 +2,7 @@ package org.dhatim.safesql.builder;
 
 import org.dhatim.safesql.SafeSqlBuilder;
 
-public class UnaryCompute implements Operand {
+public class UnaryCompute implements Operand, ExpressionRenderer.Composite {
 
     private final UnaryOperator operator;
     private final Operand operand;
@@ -21,8 +21,13 @@ public class UnaryCompute implements Operand {
     }
     
     @Override
-    public void appendTo(SafeSqlBuilder builder) {
-        builder.append(operator).append("(").append(operand).append(")");
+    public final void appendTo(SafeSqlBuilder builder) {
+        ExpressionRenderer.render(this, builder);
+    }
+    
+    @Override
+    public void addParts(ExpressionRenderer renderer) {
+        renderer.add(operator).add("(").add(operand).add(")");
     }
 
 }
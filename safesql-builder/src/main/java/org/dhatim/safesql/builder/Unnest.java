@@ -0,0 +1,79 @@
+package org.dhatim.safesql.builder;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.dhatim.safesql.SafeSqlBuilder;
+
+/**
+ * Rows built from one array parameter per column: <code>SELECT * FROM unnest(?::int8[], ?::text[])</code>.
+ * <p>
+ * Unlike a <code>VALUES</code> list, the statement has one parameter per column whatever the number of rows, so its
+ * SQL is the same for every batch and the server prepares it once. Each parameter is a Java array, primitive or not,
+ * or a {@link List}, which is converted to an array of the class of its first non-null element.
+ */
+public class Unnest implements SqlQuery {
+
+    private final List<String> sqlTypes;
+    private final List<Object> arrays;
+
+    /**
+     * @param sqlTypes SQL types of the elements of the columns, like <code>int8</code>
+     * @param arrays values of the columns, one array or list per column
+     */
+    public Unnest(List<String> sqlTypes, List<?> arrays) {
+        if (sqlTypes.size() != arrays.size()) {
+            throw new IllegalArgumentException("Expected " + sqlTypes.size() + " arrays, got " + arrays.size());
+        }
+        if (sqlTypes.isEmpty()) {
+            throw new IllegalArgumentException("unnest must have at least one column");
+        }
+        this.sqlTypes = new ArrayList<>(sqlTypes);
+        this.arrays = new ArrayList<>(arrays.size());
+        int length = -1;
+        for (Object array : arrays) {
+            Object converted = toArray(array);
+            int arrayLength = Array.getLength(converted);
+            if (length != -1 && arrayLength != length) {
+                throw new IllegalArgumentException("All arrays must have the same length " + length);
+            }
+            length = arrayLength;
+            this.arrays.add(converted);
+        }
+    }
+
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        builder.append("SELECT * FROM ");
+        appendFunction(builder);
+    }
+
+    /**
+     * Appends the <code>unnest(...)</code> call alone.
+     */
+    void appendFunction(SafeSqlBuilder builder) {
+        builder.append("unnest(");
+        for (int i = 0; i < arrays.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.param(arrays.get(i)).append("::").append(sqlTypes.get(i)).append("[]");
+        }
+        builder.append(')');
+    }
+
+    private static Object toArray(Object values) {
+        Objects.requireNonNull(values, "Array must be not null");
+        if (values.getClass().isArray()) {
+            return values;
+        } else if (values instanceof List) {
+            List<?> list = (List<?>) values;
+            Class<?> componentType = list.stream().filter(Objects::nonNull).findFirst().<Class<?>>map(Object::getClass).orElse(Object.class);
+            return list.toArray((Object[]) Array.newInstance(componentType, list.size()));
+        } else {
+            throw new IllegalArgumentException("Expected an array or a list, got " + values.getClass().getName());
+        }
+    }
+
+}
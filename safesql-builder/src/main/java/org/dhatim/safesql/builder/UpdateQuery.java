@@ -0,0 +1,171 @@
+package org.dhatim.safesql.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.dhatim.safesql.SafeSqlBuilder;
+
+/**
+ * An <code>UPDATE</code> statement. Jointures added to the query itself follow the <code>FROM</code> list, so they
+ * join its last item, and require at least one.
+ */
+public class UpdateQuery extends AbstractHasJointure implements WithQuery, WhereClause {
+
+    private final BuilderContext context;
+
+    private final String schema;
+    private final String tableName;
+    private final Alias alias;
+
+    private final List<CommonTableExpression> ctes = new ArrayList<>();
+    private final List<Assignment> assignments = new ArrayList<>();
+    private final List<From> froms = new ArrayList<>();
+    private final List<Condition> conditions = new ArrayList<>();
+    private final List<Operand> returning = new ArrayList<>();
+
+    private boolean simplifyConditions;
+
+    public UpdateQuery(String tableName) {
+        this(null, tableName, null);
+    }
+
+    public UpdateQuery(String schema, String tableName, Alias alias) {
+        this(new BuilderContext(), schema, tableName, alias);
+    }
+
+    UpdateQuery(BuilderContext context, String schema, String tableName, Alias alias) {
+        this.context = context;
+        this.schema = schema;
+        this.tableName = tableName;
+        this.alias = alias;
+    }
+
+    public Alias getAlias() {
+        return alias;
+    }
+
+    public UpdateQuery set(String column, Operand value) {
+        return set(new Assignment(column, value));
+    }
+
+    public UpdateQuery set(Assignment... assignments) {
+        this.assignments.addAll(Arrays.asList(assignments));
+        modified();
+        return this;
+    }
+
+    public From from(String tableName, Alias alias) {
+        return from(From.table(null, tableName, alias));
+    }
+
+    public From from(String schema, String tableName, Alias alias) {
+        return from(From.table(schema, tableName, alias));
+    }
+
+    public From from(SqlQuery query, Alias alias) {
+        return from(From.query(query, alias, Collections.emptyList()));
+    }
+
+    public From from(SqlQuery query, Alias alias, List<String> columnNames) {
+        return from(From.query(query, alias, columnNames));
+    }
+
+    private From from(From from) {
+        froms.add(from);
+        modified();
+        return from;
+    }
+
+    /**
+     * Simplifies the conditions of the <code>WHERE</code> clause when rendering this query.
+     *
+     * @return this query
+     * @see ConditionSimplifier
+     */
+    public UpdateQuery simplifyConditions() {
+        simplifyConditions = true;
+        modified();
+        return this;
+    }
+
+    @Override
+    public UpdateQuery and(Condition condition) {
+        conditions.add(condition);
+        modified();
+        return this;
+    }
+
+    public UpdateQuery returning(Operand... operands) {
+        returning.addAll(Arrays.asList(operands));
+        modified();
+        return this;
+    }
+
+    public UpdateQuery returningAll() {
+        returning.add(new Constant("*"));
+        modified();
+        return this;
+    }
+
+    public UpdateQuery returning(String... columns) {
+        returning.addAll(Arrays.stream(columns).map(Column::new).collect(Collectors.toList()));
+        modified();
+        return this;
+    }
+
+    public UpdateQuery with(String name, WithQuery query) {
+        ctes.add(new CommonTableExpression(name, query));
+        modified();
+        return this;
+    }
+
+    public UpdateQuery with(String name, List<String> columnNames, WithQuery query) {
+        ctes.add(new CommonTableExpression(name, columnNames, query));
+        modified();
+        return this;
+    }
+
+    public Alias generate(String suggestion) {
+        return context.generate(suggestion);
+    }
+
+    @Override
+    public void appendTo(SafeSqlBuilder builder) {
+        rendered();
+        if (assignments.isEmpty()) {
+            throw new BuilderException("UPDATE must set at least one column");
+        }
+        if (!ctes.isEmpty()) {
+            builder.append("WITH ");
+            builder.appendJoined(", ", ctes);
+            builder.append(" ");
+        }
+        builder.append("UPDATE ");
+        if (schema != null) {
+            builder.appendIdentifier(schema).append('.');
+        }
+        builder.appendIdentifier(tableName);
+        if (alias != null) {
+            builder.append(' ').append(alias);
+        }
+        builder.append(" SET ").appendJoined(", ", assignments);
+        if (!froms.isEmpty()) {
+            builder.append(" FROM ").appendJoined(", ", froms);
+            if (hasJointures()) {
+                builder.append(' ').appendJoined(" ", getJointures());
+            }
+        } else if (hasJointures()) {
+            throw new BuilderException("UPDATE jointures require a FROM item to join");
+        }
+        List<Condition> simplifiedConditions = simplifyConditions ? ConditionSimplifier.simplifyConjunction(conditions) : conditions;
+        if (!simplifiedConditions.isEmpty()) {
+            builder.append(" WHERE ").appendJoined(" AND ", simplifiedConditions);
+        }
+        if (!returning.isEmpty()) {
+            builder.append(" RETURNING ").appendJoined(", ", returning);
+        }
+    }
+
+}
@@ -1,5 +1,7 @@
 package org.dhatim.safesql.builder;
 
+import java.util.Arrays;
+import java.util.Objects;
 import org.dhatim.safesql.SafeSql;
 import org.dhatim.safesql.SafeSqlBuilder;
 import org.dhatim.safesql.SafeSqlUtils;
@@ -26,11 +28,37 @@ public class Value implements Operand {
         return data;
     }
     
+    @Override
+    public int hashCode() {
+        return 31 * getClass().hashCode() + Arrays.deepHashCode(new Object[] { data });
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        return Objects.deepEquals(data, ((Value) obj).data);
+    }
+    
     @Override
     public String toString() {
         return "Value{" + data.getClass().getSimpleName() + ":" + data + "}";
     }
     
+    /**
+     * Creates a named placeholder, bound later by a {@link CompiledQuery}.
+     * 
+     * @param name name of the slot
+     * @return a placeholder value
+     */
+    public static Value slot(String name) {
+        return new Slot(name);
+    }
+    
     public static Value of(Object data) {
         if (data instanceof Boolean) {
             return new BooleanValue((Boolean) data);
@@ -24,7 +24,7 @@ private final ArrayList<Row> rows = new ArrayList<>();
     public void appendTo(SafeSqlBuilder builder) {
         validate();
         builder.append("VALUES ");
-        builder.appendJoined(", ", rows);
+        ParallelRenderer.appendJoined(builder, ", ", rows, Row::getLength);
     }
     
     private void validate() {
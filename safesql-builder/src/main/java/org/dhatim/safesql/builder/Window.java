@@ -9,6 +9,8 @@ public class Window implements SafeSqlizable {
 
     private final List<Operand> partition = new ArrayList<>();
     
+    private boolean rendered;
+    
     protected Window() {
     }
     
@@ -23,17 +25,31 @@ public class Window implements SafeSqlizable {
     public void setPartition(List<Operand> newPartitions) {
         partition.clear();
         partition.addAll(newPartitions);
+        modified();
     }
     
     public void addPartition(Operand operand) {
         partition.add(operand);
+        modified();
+    }
+    
+    private void modified() {
+        if (rendered) {
+            rendered = false;
+            Rendering.modified();
+        }
     }
 
     @Override
     public void appendTo(SafeSqlBuilder builder) {
-        builder.append("(PARTITION BY ")
-                .appendJoined(", ", partition)
-                .append(')');
+        rendered = true;
+        if (partition.isEmpty()) {
+            builder.append("()");
+        } else {
+            builder.append("(PARTITION BY ")
+                    .appendJoined(", ", partition)
+                    .append(')');
+        }
     }
     
 }
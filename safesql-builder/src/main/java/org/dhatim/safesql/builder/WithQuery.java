@@ -0,0 +1,10 @@
+package org.dhatim.safesql.builder;
+
+/**
+ * A statement usable as the body of a common table expression: a {@link SqlQuery}, or a data-modifying statement like
+ * an insert, an update or a delete, the rows of the expression being the ones it returns. Only a {@code SqlQuery} can
+ * be used where a subquery is expected.
+ */
+public interface WithQuery extends Expression {
+
+}
@@ -0,0 +1,51 @@
+package org.dhatim.safesql.builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.function.Function;
+import org.junit.Test;
+
+public class BuilderContextTest {
+
+    @Test
+    public void testNumbering() {
+        assertNumbering(new BuilderContext());
+    }
+
+    @Test
+    public void testConcurrentNumbering() {
+        assertNumbering(BuilderContext.concurrent());
+    }
+
+    @Test
+    public void testPartitionNumbering() {
+        BuilderContext context = new BuilderContext();
+        BuilderContext partition = context.partition("u1_");
+        assertThat(partition.generate("t").getName()).isEqualTo("u1_t");
+        assertThat(partition.generate("t").getName()).isEqualTo("u1_t_1");
+        assertThat(context.generate("u1_t").getName()).isEqualTo("u1_t_2");
+        assertThat(context.partition("u1_").generate("t").getName()).isEqualTo("u1_t_3");
+        assertThat(context.generate("t").getName()).isEqualTo("t");
+    }
+
+    private static void assertNumbering(BuilderContext context) {
+        assertNumbering(suggestion -> context.generate(suggestion).getName());
+        assertNumbering(context::generateIdentifier);
+    }
+
+    private static void assertNumbering(Function<String, String> generator) {
+        assertThat(generator.apply("t")).isEqualTo("t");
+        assertThat(generator.apply("t")).isEqualTo("t_1");
+        assertThat(generator.apply("t")).isEqualTo("t_2");
+        assertThat(generator.apply("t_5")).isEqualTo("t_5");
+        assertThat(generator.apply("t_5")).isEqualTo("t_6");
+        assertThat(generator.apply("t")).isEqualTo("t_3");
+        assertThat(generator.apply("t_1")).isEqualTo("t_4");
+        assertThat(generator.apply("t_4")).isEqualTo("t_7");
+        assertThat(generator.apply("t")).isEqualTo("t_8");
+        assertThat(generator.apply("u_1")).isEqualTo("u_1");
+        assertThat(generator.apply("u")).isEqualTo("u");
+        assertThat(generator.apply("u")).isEqualTo("u_2");
+    }
+
+}
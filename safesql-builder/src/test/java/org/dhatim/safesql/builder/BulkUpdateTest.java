@@ -0,0 +1,23 @@
+package org.dhatim.safesql.builder;
+
+import static org.dhatim.safesql.assertion.Assertions.*;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import org.junit.Test;
+
+public class BulkUpdateTest {
+    
+    @Test
+    public void testBulkUpdate() {
+        BulkUpdate bulk = new BulkUpdate("users").key("id", "bigint").column("name", "text").column("age", null).maxParameters(7);
+        bulk.add(1L, "a", 10).add(2L, "b", 20).add(3L, "c", 30);
+        List<UpdateQuery> queries = bulk.toQueries();
+        assertEquals(2, queries.size());
+        assertThat(queries.get(0).toSafeSql()).hasSql("UPDATE users t SET name = v.name, age = v.age FROM (VALUES (?::bigint, ?::text, ?), (?, ?, ?)) v (id, name, age) "
+                + "WHERE t.id = v.id").hasParameters(1L, "a", 10, 2L, "b", 20);
+        assertThat(queries.get(1).toSafeSql()).hasSql("UPDATE users t SET name = v.name, age = v.age FROM (VALUES (?::bigint, ?::text, ?)) v (id, name, age) "
+                + "WHERE t.id = v.id").hasParameters(3L, "c", 30);
+    }
+    
+}
@@ -0,0 +1,49 @@
+package org.dhatim.safesql.builder;
+
+import static org.dhatim.safesql.assertion.Assertions.*;
+
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class CompoundQueryTest {
+    
+    @Test
+    public void testCompoundQuery() {
+        SelectQuery active = new SelectQuery();
+        active.select("id").from("users");
+        active.and(Condition.eq(new Column("active"), new BooleanValue(true)));
+        SelectQuery archived = new SelectQuery();
+        archived.select("id").from("archived_users");
+        archived.orderBy("id", Order.DESC).limit(10);
+        
+        assertThat(CompoundQuery.union(active, archived).orderBy("id", Order.ASC).limit(5).toSafeSql())
+                .hasSql("(SELECT id FROM users WHERE active = ?) UNION (SELECT id FROM archived_users ORDER BY id DESC LIMIT 10) ORDER BY id ASC LIMIT 5")
+                .hasParameters(true);
+        assertThat(CompoundQuery.union(active, archived).disjoint().toSafeSql())
+                .hasSql("(SELECT id FROM users WHERE active = ?) UNION ALL (SELECT id FROM archived_users ORDER BY id DESC LIMIT 10)");
+        assertThat(CompoundQuery.except(active, archived).disjoint().toSafeSql())
+                .hasSql("(SELECT id FROM users WHERE active = ?) EXCEPT (SELECT id FROM archived_users ORDER BY id DESC LIMIT 10)");
+        
+        CompoundQuery streamed = new CompoundQuery(SetOperator.INTERSECT, () -> IntStream.range(0, 3).mapToObj(i -> {
+            SelectQuery branch = new SelectQuery();
+            branch.select("id").from("users");
+            branch.and(Condition.eq(new Column("group_id"), new Value(i)));
+            return branch;
+        }));
+        assertThat(streamed.toSafeSql()).hasSql("(SELECT id FROM users WHERE group_id = ?) INTERSECT (SELECT id FROM users WHERE group_id = ?) "
+                + "INTERSECT (SELECT id FROM users WHERE group_id = ?)").hasParameters(0, 1, 2);
+        assertThat(streamed.toSafeSql()).hasParameters(0, 1, 2);
+    }
+    
+    @Test
+    public void testOrderBy() {
+        SelectQuery users = new SelectQuery();
+        users.select("name").select(new Column("created"), users.generate("since")).from("users");
+        SelectQuery groups = new SelectQuery();
+        groups.select("label").select("created").from("groups");
+        
+        assertThat(CompoundQuery.unionAll(users, groups).orderBy("since", Order.DESC).orderBy("Name", Order.ASC).toSafeSql())
+                .hasSql("(SELECT name, created AS since FROM users) UNION ALL (SELECT label, created FROM groups) ORDER BY since DESC, \"Name\" ASC");
+    }
+    
+}
@@ -0,0 +1,75 @@
+package org.dhatim.safesql.builder;
+
+import static org.dhatim.safesql.assertion.Assertions.*;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ConditionSimplifierTest {
+    
+    @Test
+    public void testSimplifiedConditions() {
+        Condition x = Condition.eq(new Column("a"), new Value(1));
+        Condition y = Condition.eq(new Column("b"), new Value(2));
+        SelectQuery qb = new SelectQuery();
+        qb.simplifyConditions().select("id").from("table_name");
+        qb.and(Condition.and(Condition.and(x, Condition.and(y, new BooleanValue(true))), Condition.eq(new Column("a"), new Value(1))));
+        qb.and(Condition.or(Condition.or(Condition.eq(new Column("c"), new Value(3)), Condition.eq(new Column("c"), new Value(4))), Condition.in(new Column("c"), new Value(3), new Value(5))));
+        qb.and(Condition.or(Condition.isNull(new Column("d")), Condition.isNotNull(new Column("d"))));
+        
+        assertThat(qb.toSafeSql()).hasSql("SELECT id FROM table_name WHERE a = ? AND b = ? AND c IN (?, ?, ?)").hasParameters(1, 2, 3, 4, 5);
+    }
+    
+    @Test
+    public void testContradiction() {
+        Condition x = Condition.eq(new Column("a"), new Value(1));
+        SelectQuery qb = new SelectQuery();
+        qb.simplifyConditions().select("id").from("table_name");
+        qb.and(Condition.or(Condition.and(x, x.negate()), new BooleanValue(false)));
+        
+        assertThat(qb.toSafeSql()).hasSql("SELECT id FROM table_name WHERE ?").hasParameters(false);
+        assertEquals(new BooleanValue(true), ConditionSimplifier.simplify(Condition.or(x, new BooleanValue(true))));
+    }
+    
+    @Test
+    public void testNotSimplifiedByDefault() {
+        Condition x = Condition.eq(new Column("a"), new Value(1));
+        SelectQuery qb = new SelectQuery();
+        qb.select("id").from("table_name");
+        qb.and(Condition.and(x, new BooleanValue(true)));
+        qb.and(x);
+        
+        assertThat(qb.toSafeSql()).hasSql("SELECT id FROM table_name WHERE (a = ? AND ?) AND a = ?").hasParameters(1, true, 1);
+    }
+    
+    @Test
+    public void testModifiedNestedGroup() {
+        ConditionGroup inner = new ConditionGroup(LogicalOperator.AND);
+        inner.add(Condition.eq(new Column("a"), new Value(1)));
+        inner.add(Condition.eq(new Column("b"), new Value(2)));
+        ConditionGroup first = new ConditionGroup(LogicalOperator.OR);
+        first.add(inner);
+        first.add(Condition.eq(new Column("c"), new Value(3)));
+        Condition second = Condition.or(Condition.and(Condition.eq(new Column("a"), new Value(1)), Condition.eq(new Column("b"), new Value(2))),
+                Condition.eq(new Column("c"), new Value(3)));
+        int hash = first.hashCode();
+        
+        inner.add(Condition.eq(new Column("d"), new Value(4)));
+        assertEquals(second.hashCode(), hash);
+        assertThat(ConditionSimplifier.simplify(Condition.and(first, second)).toSafeSql())
+                .hasSql("(((a = ? AND b = ? AND d = ?) OR c = ?) AND ((a = ? AND b = ?) OR c = ?))")
+                .hasParameters(1, 2, 4, 3, 1, 2, 3);
+    }
+    
+    @Test
+    public void testDeepTree() {
+        Condition condition = Condition.eq(new Column("a"), new Value(0));
+        for (int i = 1; i < 100_000; i++) {
+            Condition eq = Condition.eq(new Column("a"), new Value(i));
+            condition = i % 2 == 0 ? Condition.and(eq, condition) : Condition.or(eq, condition);
+        }
+        
+        assertThat(ConditionSimplifier.simplify(Condition.and(condition, condition)).toSafeSql()).hasParameterCount(100_000);
+    }
+    
+}
@@ -0,0 +1,40 @@
+package org.dhatim.safesql.builder;
+
+import static org.dhatim.safesql.assertion.Assertions.*;
+
+import org.junit.Test;
+
+public class DeleteQueryTest {
+    
+    @Test
+    public void testWritingCtes() {
+        DeleteQuery delete = new DeleteQuery("events");
+        delete.and(Condition.le(new Column("created_at"), new Value("2020-01-01"))).returningAll();
+        SelectQuery deleted = new SelectQuery();
+        deleted.select(new Constant("*")).from("del");
+        InsertQuery archive = new InsertQuery(null, "archived_events", deleted).with("del", delete);
+        assertThat(archive.toSafeSql()).hasSql("WITH del AS (DELETE FROM events WHERE created_at <= ? RETURNING *) "
+                + "INSERT INTO archived_events SELECT * FROM del").hasParameters("2020-01-01");
+        
+        DeleteQuery orphans = new DeleteQuery(null, "children", null);
+        Alias p = orphans.generate("p");
+        orphans.using("parents", p);
+        orphans.and(Condition.eq(new Column(p, "id"), new Column("parent_id"))).and(Condition.isNotNull(new Column(p, "deleted_at")));
+        assertThat(orphans.returning("id").toSafeSql()).hasSql("DELETE FROM children USING parents p WHERE p.id = parent_id AND p.deleted_at IS NOT NULL RETURNING id");
+    }
+    
+    @Test
+    public void testBatchedDelete() {
+        DeleteQuery purge = new DeleteQuery("events").batched(1000);
+        purge.and(Condition.le(new Column("created_at"), new Value("2020-01-01")));
+        assertThat(purge.toSafeSql()).hasSql("DELETE FROM events WHERE ctid = ANY(ARRAY(SELECT ctid FROM events WHERE created_at <= ? LIMIT ?))")
+                .hasParameters("2020-01-01", 1000);
+        
+        DeleteQuery orphans = new DeleteQuery(null, "children", null).batched(500);
+        Alias p = orphans.generate("p");
+        orphans.using("parents", p);
+        orphans.and(Condition.eq(new Column(p, "id"), new Column("parent_id")));
+        assertThat(orphans.toSafeSql()).hasSql("DELETE FROM children WHERE ctid = ANY(ARRAY(SELECT children.ctid FROM children, parents p WHERE p.id = parent_id LIMIT ?))");
+    }
+    
+}
@@ -0,0 +1,42 @@
+package org.dhatim.safesql.builder;
+
+import static org.dhatim.safesql.assertion.Assertions.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.dhatim.safesql.SafeSql;
+import org.junit.Test;
+
+public class InsertQueryTest {
+    
+    @Test
+    public void testUpsert() {
+        Values values = new Values(new Row(new Value(1), new Value("a")), new Row(new Value(2), new Value("b")));
+        InsertQuery insert = new InsertQuery(null, "users", values, "id", "name");
+        insert.onConflict("id").doUpdate(Assignment.excluded("name"), Assignment.set("version", new Constant("users.version + 1")))
+                .and(Condition.create(new Column("name"), ComparisonOperator.NE, InsertQuery.excluded("name")));
+        insert.returning("id");
+        assertThat(insert.toSafeSql()).hasSql("INSERT INTO users (id, name) VALUES (?, ?), (?, ?) ON CONFLICT (id) "
+                + "DO UPDATE SET name = excluded.name, version = users.version + 1 WHERE name <> excluded.name RETURNING id")
+                .hasParameters(1, "a", 2, "b");
+        
+        InsertQuery ignore = new InsertQuery(null, "users", values, "id", "name");
+        ignore.onConflictOnConstraint("users_pkey").doNothing();
+        assertThat(ignore.toSafeSql()).hasSql("INSERT INTO users (id, name) VALUES (?, ?), (?, ?) ON CONFLICT ON CONSTRAINT users_pkey DO NOTHING");
+    }
+    
+    @Test
+    public void testInsertFromArrays() {
+        long[] ids = {1, 2, 3};
+        List<String> names = Arrays.asList("a", "b", "c");
+        InsertQuery insert = InsertQuery.fromArrays(null, "users", Arrays.asList("id", "name"), Arrays.asList("int8", "text"), Arrays.asList(ids, names));
+        SafeSql sql = insert.toSafeSql();
+        assertThat(sql).hasSql("INSERT INTO users (id, name) SELECT * FROM unnest(?::int8[], ?::text[])");
+        assertEquals(2, sql.getParameters().length);
+        assertTrue(sql.getParameters()[0] == ids);
+        assertTrue(Arrays.equals(new String[] {"a", "b", "c"}, (String[]) sql.getParameters()[1]));
+    }
+    
+}
@@ -2,7 +2,22 @@ package org.dhatim.safesql.builder;
 
 import static org.dhatim.safesql.assertion.Assertions.*;
 import static org.dhatim.safesql.builder.Value.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.dhatim.safesql.SafeSql;
+import org.dhatim.safesql.SafeSqlBuilder;
+import org.dhatim.safesql.SafeSqlUtils;
 import org.junit.Test;
 
 public class SelectQueryTest {
@@ -86,6 +101,388 @@ public class SelectQueryTest {
         assertThat(qb.toSafeSql()).hasSql("SELECT t1.id FROM table_name t1, other_table t1_1, other_other_table t1_2 WHERE t1.name = ?").hasParameters("Lucie");
     }
     
+    @Test
+    public void testAliasSharedContext() {
+        SelectQuery qb = new SelectQuery();
+        SelectQuery sub = SelectQuery.withContextOf(qb);
+        Alias x = qb.generate("x_3");
+        Alias x2 = sub.generate("x_3");
+        Alias x3 = qb.generate("x_3");
+        for (int i = 0; i < 1000; i++) {
+            sub.generate("t");
+        }
+        Alias t = qb.generate("t");
+        qb.select(x, "id").from("a", x);
+        qb.from("b", x2);
+        qb.from("c", x3);
+        qb.from("d", t);
+        
+        assertThat(qb.toSafeSql()).hasSql("SELECT x_3.id FROM a x_3, b x_4, c x_5, d t_1000").hasEmptyParameters();
+    }
+    
+    @Test
+    public void testConcurrentContext() {
+        BuilderContext context = BuilderContext.concurrent();
+        List<SelectQuery> queries = IntStream.range(0, 200).parallel().mapToObj(i -> {
+            SelectQuery query = SelectQuery.withContext(context);
+            for (int j = 0; j < 10; j++) {
+                Alias alias = query.generate("t");
+                query.from("table_name", alias);
+            }
+            BuilderContext partition = context.partition("u" + i + "_");
+            Alias alias = partition.generate("t");
+            query.select(alias, "id").from("other", alias);
+            query.from("other", partition.generate("t"));
+            return query;
+        }).collect(Collectors.toList());
+        
+        Set<String> froms = new HashSet<>();
+        for (SelectQuery query : queries) {
+            String sql = query.toSafeSql().asSql();
+            froms.addAll(Arrays.asList(sql.substring(sql.indexOf(" FROM ") + 6).split(", ")));
+        }
+        assertEquals(200 * 12, froms.size());
+        SafeSql sql = queries.get(42).toSafeSql();
+        assertTrue(sql.asSql().startsWith("SELECT u42_t.id FROM "));
+        assertTrue(sql.asSql().endsWith(", other u42_t, other u42_t_1"));
+    }
+    
+    @Test
+    public void testConditionCollection() {
+        List<Condition> conditions = IntStream.range(0, 5000)
+                .mapToObj(i -> Condition.eq(new Column("a" + i), new Value(i)))
+                .collect(Collectors.toList());
+        SelectQuery qb = new SelectQuery();
+        qb.simplifyConditions().select("id").from("table_name");
+        qb.and(Condition.or(Condition.and(conditions), Condition.and(Collections.emptyList())));
+        
+        assertThat(qb.toSafeSql()).hasSql("SELECT id FROM table_name").hasEmptyParameters();
+        
+        qb = new SelectQuery();
+        qb.simplifyConditions().select("id").from("table_name");
+        qb.and(Condition.or(conditions.get(0), conditions.get(1), Condition.or(conditions.subList(2, 4))));
+        
+        assertThat(qb.toSafeSql()).hasSql("SELECT id FROM table_name WHERE (a0 = ? OR a1 = ? OR a2 = ? OR a3 = ?)").hasParameters(0, 1, 2, 3);
+        assertThat(Condition.and(conditions).toSafeSql()).hasParameterCount(5000);
+    }
+    
+    @Test
+    public void testImmutableVariants() {
+        SelectQuery qb = new SelectQuery();
+        Alias alias = qb.generate("t");
+        qb.select(alias, "id").from("table_name", alias);
+        ImmutableSelectQuery base = qb.toImmutable();
+        SelectQuery expected = new SelectQuery(qb);
+        for (int i = 0; i < 2000; i++) {
+            base = base.withCondition(Condition.eq(new Column(alias, "a" + i), new Value(i)));
+            expected.and(Condition.eq(new Column(alias, "a" + i), new Value(i)));
+        }
+        ImmutableSelectQuery page = base.withOrder(alias, "id", Order.ASC).withLimit(10);
+        ImmutableSelectQuery filtered = base.withCondition(Condition.isNull(new Column(alias, "b")));
+        
+        assertThat(base.toSafeSql()).hasSql(expected.toSafeSql().asSql()).hasParameterCount(2000);
+        assertThat(page.toSafeSql()).hasSql(expected.toSafeSql().asSql() + " ORDER BY t.id ASC LIMIT 10");
+        assertThat(filtered.toSafeSql()).hasSql(expected.toSafeSql().asSql() + " AND t.b IS NULL");
+        assertThat(page.withoutOrders().withoutLimit().toSafeSql()).hasSql(expected.toSafeSql().asSql());
+        assertThat(filtered.toSelectQuery().toSafeSql()).hasSql(filtered.toSafeSql().asSql());
+    }
+    
+    @Test
+    public void testRepeatedSubtrees() {
+        int[] renderings = {0};
+        Operand counted = builder -> {
+            renderings[0]++;
+            builder.append("'one'");
+        };
+        Case<Condition> label = Case.create(Condition.eq(new Column("a"), new Value(1)), counted, Literal.of("other"));
+        Case<Condition> sameLabel = Case.create(Condition.eq(new Column("a"), new Value(1)), counted, Literal.of("other"));
+        
+        SelectQuery qb = new SelectQuery();
+        qb.select(label).from("table_name");
+        qb.and(Condition.eq(label, Literal.of("one")));
+        qb.and(Condition.eq(sameLabel, Literal.of("one")));
+        
+        String rendered = "CASE WHEN a = ? THEN 'one' ELSE 'other' END";
+        assertThat(qb.toSafeSql())
+                .hasSql("SELECT " + rendered + " FROM table_name WHERE " + rendered + " = 'one' AND " + rendered + " = 'one'")
+                .hasParameters(1, 1, 1);
+        assertEquals(2, renderings[0]);
+    }
+    
+    @Test
+    public void testExtractRepeatedSubqueries() {
+        SelectQuery qb = new SelectQuery();
+        Alias a = qb.generate("a");
+        Alias b = qb.generate("b");
+        qb.select(a, "id").from(activeUsers(), a);
+        qb.from(activeUsers(), b);
+        qb.and(Condition.in(new Column(a, "id"), new QueryOperand(activeUsers())));
+        qb.and(Condition.eq(new Column(b, "id"), new QueryOperand(new SelectQuery().select(new Constant(1)))));
+        String inline = "(SELECT id FROM users WHERE active = ?)";
+        assertThat(qb.toSafeSql()).hasSql("SELECT a.id FROM " + inline + " a, " + inline + " b WHERE a.id IN (" + inline + ") AND b.id = (SELECT 1)");
+        
+        qb.extractRepeatedSubqueries(true);
+        SafeSql sql = qb.toSafeSql();
+        assertThat(sql)
+                .hasSql("WITH cte AS MATERIALIZED (SELECT id FROM users WHERE active = ?) SELECT a.id FROM cte a, cte b WHERE a.id IN ((SELECT * FROM cte)) AND b.id = (SELECT 1)")
+                .hasParameters(true);
+        assertThat(qb.toSafeSql()).hasSql(sql.asSql());
+    }
+    
+    @Test
+    public void testCorrelatedSubqueriesNotExtracted() {
+        SelectQuery qb = new SelectQuery();
+        Alias t = qb.generate("t");
+        qb.select(t, "id").select(new QueryOperand(maxAmount(t))).from("tenants", t);
+        qb.and(Condition.create(new QueryOperand(maxAmount(t)), ComparisonOperator.GT, new Value(100)));
+        qb.and(Condition.in(new Column(t, "owner"), new QueryOperand(activeUsers())));
+        qb.and(Condition.in(new Column(t, "author"), new QueryOperand(activeUsers())));
+        qb.extractRepeatedSubqueries(false);
+        
+        String correlated = "(SELECT max(amount) FROM orders WHERE tid = t.id)";
+        assertThat(qb.toSafeSql())
+                .hasSql("WITH cte AS (SELECT id FROM users WHERE active = ?) SELECT t.id, " + correlated + " FROM tenants t WHERE "
+                        + correlated + " > ? AND t.owner IN ((SELECT * FROM cte)) AND t.author IN ((SELECT * FROM cte))")
+                .hasParameters(true, 100);
+    }
+    
+    private static SelectQuery maxAmount(Alias tenant) {
+        SelectQuery query = new SelectQuery();
+        query.select(new Call("max", new Column("amount"))).from("orders");
+        query.and(Condition.eq(new Column("tid"), new Column(tenant, "id")));
+        return query;
+    }
+    
+    private static SelectQuery activeUsers() {
+        SelectQuery query = new SelectQuery();
+        query.select("id").from("users");
+        query.and(Condition.eq(new Column("active"), new Value(true)));
+        return query;
+    }
+    
+    @Test
+    public void testSeekAfter() {
+        SelectQuery qb = new SelectQuery();
+        qb.select("id").from("events");
+        qb.orderBy("created", Order.DESC).orderBy("id", Order.DESC);
+        qb.seekAfter(Arrays.asList(new Column("created"), new Column("id")), Arrays.asList(1000L, 42), 50);
+        
+        assertThat(qb.toSafeSql())
+                .hasSql("SELECT id FROM events WHERE (created, id) < (?, ?) ORDER BY created DESC, id DESC LIMIT 50")
+                .hasParameters(1000L, 42);
+        
+        qb = new SelectQuery();
+        qb.select("id").from("events");
+        qb.and(Condition.isNotNull(new Column("created")));
+        qb.orderBy("created", Order.DESC);
+        qb.seekAfter(Arrays.asList(new Column("created"), new Column("id")), Arrays.asList(1000L, 42), 20);
+        
+        assertThat(qb.toSafeSql())
+                .hasSql("SELECT id FROM events WHERE created IS NOT NULL AND (created < ? OR (created = ? AND id > ?)) ORDER BY created DESC, id ASC LIMIT 20")
+                .hasParameters(1000L, 1000L, 42);
+    }
+    
+    @Test(expected = BuilderException.class)
+    public void testSeekAfterColumnsInAnotherOrder() {
+        SelectQuery qb = new SelectQuery();
+        qb.select("id").from("events");
+        qb.orderBy("id", Order.ASC).orderBy("created", Order.ASC);
+        qb.seekAfter(Arrays.asList(new Column("created"), new Column("id")), Arrays.asList(1000L, 42), 50);
+    }
+    
+    @Test(expected = BuilderException.class)
+    public void testSeekAfterColumnNotOrderedFirst() {
+        SelectQuery qb = new SelectQuery();
+        Alias e = qb.generate("e");
+        qb.select(e, "id").from("events", e);
+        qb.orderBy(e, "created", Order.DESC);
+        qb.seekAfter(Collections.singletonList(new Column(e, "id")), Collections.singletonList(42), 50);
+    }
+    
+    @Test
+    public void testTotalCount() {
+        SelectQuery qb = new SelectQuery();
+        Alias u = qb.generate("u");
+        Alias p = qb.generate("p");
+        Alias c = qb.generate("c");
+        Alias total = qb.generate("total");
+        From from = qb.from("users", u);
+        from.leftJoin("profiles", p).and(Condition.eq(new Column(p, "user_id"), new Column(u, "id")));
+        from.leftJoin("companies", c).and(Condition.eq(new Column(c, "id"), new Column(u, "company_id")));
+        qb.select(u, "name").select(p, "bio").withTotalCount(total);
+        qb.and(Condition.eq(new Column(c, "country"), new Value("FR")));
+        qb.orderBy(u, "name", Order.ASC).limit(20);
+        
+        assertThat(qb.toSafeSql()).hasSql("SELECT u.name, p.bio, count(*) OVER () AS total FROM users u "
+                + "LEFT JOIN profiles p ON p.user_id = u.id LEFT JOIN companies c ON c.id = u.company_id WHERE c.country = ? ORDER BY u.name ASC LIMIT 20");
+        assertThat(qb.toCountQuery(true).toSafeSql()).hasSql("SELECT count(*) FROM users u LEFT JOIN companies c ON c.id = u.company_id WHERE c.country = ?")
+                .hasParameters("FR");
+        assertThat(qb.toCountQuery().toSafeSql()).hasSql("SELECT count(*) FROM users u "
+                + "LEFT JOIN profiles p ON p.user_id = u.id LEFT JOIN companies c ON c.id = u.company_id WHERE c.country = ?");
+        
+        qb.groupBy(new Column(u, "name"), new Column(p, "bio"));
+        assertThat(qb.toCountQuery(true).toSafeSql()).hasSql("SELECT count(*) FROM (SELECT u.name, p.bio FROM users u "
+                + "LEFT JOIN profiles p ON p.user_id = u.id LEFT JOIN companies c ON c.id = u.company_id WHERE c.country = ? GROUP BY u.name, p.bio) counted");
+    }
+    
+    @Test(expected = BuilderException.class)
+    public void testTotalCountOfDistinctQuery() {
+        SelectQuery qb = new SelectQuery();
+        qb.select("name").from("users");
+        qb.distinct().withTotalCount(qb.generate("total"));
+    }
+    
+    @Test
+    public void testTotalCountReplaced() {
+        SelectQuery qb = new SelectQuery();
+        qb.select("name").from("users");
+        qb.withTotalCount(qb.generate("total")).select("email");
+        qb.toSafeSql();
+        qb.withTotalCount(qb.generate("matched"));
+        
+        assertThat(qb.toSafeSql()).hasSql("SELECT name, count(*) OVER () AS matched, email FROM users");
+        assertThat(qb.toCountQuery().toSafeSql()).hasSql("SELECT count(*) FROM users");
+    }
+    
+    @Test
+    public void testCountQueryKeepsReferencedJoins() {
+        SelectQuery qb = new SelectQuery();
+        Alias u = qb.generate("u");
+        Alias p = qb.generate("p");
+        Alias c = qb.generate("c");
+        From from = qb.from("users", u);
+        from.leftJoin("profiles", p).and(Condition.eq(new Column(p, "user_id"), new Column(u, "id")));
+        from.leftJoin("companies", c).and(Condition.eq(new Column(c, "id"), new Column(u, "company_id")));
+        qb.select(u, "name").window(new NamedWindow("w", Collections.singletonList(new Column(c, "country"))));
+        SelectQuery bios = new SelectQuery();
+        bios.select("user_id").from("bios");
+        bios.and(Condition.eq(new Column("bio"), new Column(p, "bio")));
+        qb.and(Condition.in(new Column(u, "id"), new QueryOperand(bios)));
+        
+        assertThat(qb.toCountQuery(true).toSafeSql()).hasSql("SELECT count(*) FROM users u "
+                + "LEFT JOIN profiles p ON p.user_id = u.id LEFT JOIN companies c ON c.id = u.company_id "
+                + "WHERE u.id IN ((SELECT user_id FROM bios WHERE bio = p.bio)) WINDOW w AS (PARTITION BY c.country)");
+    }
+    
+    @Test
+    public void testParallelValues() {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            rows.add(new Row(new Value(i), new Constant("'r" + i + "'")));
+        }
+        SafeSql parallel = new Values(rows).toSafeSql();
+        SafeSqlBuilder sequential = new SafeSqlBuilder("VALUES ").appendJoined(", ", rows);
+        assertThat(parallel).hasSql(sequential.toSafeSql().asSql());
+        assertEquals(Arrays.asList(sequential.toSafeSql().getParameters()), Arrays.asList(parallel.getParameters()));
+        
+        SafeSqlBuilder sb = new SafeSqlBuilder();
+        ParallelRenderer.appendJoined(sb, ", ", rows.subList(0, 10), Row::getLength, 2, 3);
+        assertThat(sb.toSafeSql()).hasSql("(?, 'r0'), (?, 'r1'), (?, 'r2'), (?, 'r3'), (?, 'r4'), (?, 'r5'), (?, 'r6'), (?, 'r7'), (?, 'r8'), (?, 'r9')")
+                .hasParameters(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
+    
+    @Test
+    public void testParallelSharedSubquery() {
+        SelectQuery shared = new SelectQuery();
+        shared.select("id").from("users").innerJoin("profiles").and(Condition.eq(new Column("id"), new Column("user_id")));
+        shared.and(Condition.eq(new Column("active"), new Value(true)));
+        List<SelectQuery> branches = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            SelectQuery branch = new SelectQuery();
+            branch.select("id").from("events_" + i);
+            branch.and(Condition.in(new Column("user_id"), new QueryOperand(shared)));
+            branches.add(branch);
+        }
+        CompoundQuery union = new CompoundQuery(SetOperator.UNION, branches);
+        
+        for (int i = 0; i < 20; i++) {
+            shared.and(Condition.isNull(new Column("deleted_" + i)));
+            String sequential = branches.stream().map(branch -> "(" + branch.toSafeSql().asSql() + ")").collect(Collectors.joining(" UNION "));
+            assertThat(union.toSafeSql()).hasSql(sequential).hasParameterCount(64);
+        }
+    }
+    
+    @Test
+    public void testParallelBranchesExtractSubqueries() {
+        List<SelectQuery> branches = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            SelectQuery branch = new SelectQuery();
+            Alias e = branch.generate("e");
+            branch.select(e, "id").from("events_" + i, e);
+            branch.and(Condition.in(new Column(e, "user_id"), new QueryOperand(activeUsers())));
+            branch.and(Condition.in(new Column(e, "author_id"), new QueryOperand(activeUsers())));
+            branch.extractRepeatedSubqueries(false);
+            branches.add(branch);
+        }
+        CompoundQuery union = new CompoundQuery(SetOperator.UNION, branches);
+        
+        String sequential = branches.stream().map(branch -> "(" + branch.toSafeSql().asSql() + ")").collect(Collectors.joining(" UNION "));
+        assertTrue(sequential.startsWith("(WITH cte AS (SELECT id FROM users WHERE active = ?) SELECT e.id FROM events_0 e"));
+        assertThat(union.toSafeSql()).hasSql(sequential).hasParameterCount(16);
+    }
+    
+    @Test
+    public void testLocking() {
+        SelectQuery qb = new SelectQuery();
+        Alias j = qb.generate("j");
+        Alias w = qb.generate("w");
+        qb.select(j, "id").from("jobs", j).innerJoin("workers", w).and(Condition.eq(new Column(w, "id"), new Column(j, "worker_id")));
+        qb.limit(10).lock(LockStrength.NO_KEY_UPDATE, LockWaitPolicy.NOWAIT, j).lock(LockStrength.KEY_SHARE, LockWaitPolicy.WAIT, w);
+        assertThat(qb.toSafeSql()).hasSql("SELECT j.id FROM jobs j INNER JOIN workers w ON w.id = j.worker_id LIMIT 10 "
+                + "FOR NO KEY UPDATE OF j NOWAIT FOR KEY SHARE OF w");
+        assertThat(qb.toCountQuery().toSafeSql()).hasSql("SELECT count(*) FROM jobs j INNER JOIN workers w ON w.id = j.worker_id");
+        assertThat(qb.clearLockings().forUpdate().toSafeSql()).hasSql("SELECT j.id FROM jobs j INNER JOIN workers w ON w.id = j.worker_id LIMIT 10 FOR UPDATE");
+    }
+    
+    @Test
+    public void testQueueClaim() {
+        QueueClaim claim = new QueueClaim("jobs", "id").and(Condition.eq(new Column("status"), new Value("pending")))
+                .orderBy("created_at", Order.ASC).batchSize(10).set(Assignment.setValue("status", "running"));
+        assertThat(claim.toSafeSql()).hasSql("WITH claimed AS (SELECT id FROM jobs WHERE status = ? ORDER BY created_at ASC LIMIT 10 FOR UPDATE SKIP LOCKED) "
+                + "UPDATE jobs t SET status = ? FROM claimed WHERE t.id = claimed.id RETURNING t.*").hasParameters("pending", "running");
+    }
+    
+    @Test
+    public void testAllColumns() {
+        Alias alias = new Alias(null, "Users");
+        SelectQuery qb = new SelectQuery();
+        qb.select(Column.allOf(alias)).select(Column.all()).from("users", alias);
+        
+        assertThat(qb.toSafeSql()).hasSql("SELECT \"Users\".*, * FROM users \"Users\"");
+    }
+    
+    @Test
+    public void testLateralJoin() {
+        SelectQuery qb = new SelectQuery();
+        Alias a = qb.generate("a");
+        Alias e = qb.generate("e");
+        Alias x = qb.generate("x");
+        SelectQuery latest = SelectQuery.withContextOf(qb);
+        latest.select(e, "name").from("events", e);
+        latest.and(Condition.eq(new Column(e, "account_id"), new Column(a, "id")));
+        latest.orderBy(e, "created_at", Order.DESC).limit(3);
+        From from = qb.from("accounts", a);
+        from.joinLateral(JointureType.LEFT_OUTER, latest, x);
+        qb.select(a, "id").select(x, "name");
+        assertThat(qb.toSafeSql()).hasSql("SELECT a.id, x.name FROM accounts a "
+                + "LEFT JOIN LATERAL (SELECT e.name FROM events e WHERE e.account_id = a.id ORDER BY e.created_at DESC LIMIT 3) x ON TRUE");
+        
+        SelectQuery totals = new SelectQuery();
+        totals.select(new Column("account_id")).select(new Call("sum", new Column("amount")), new Alias(null, "total")).from("payments");
+        totals.groupBy(new Column("account_id"));
+        SelectQuery report = new SelectQuery();
+        Alias r = report.generate("a");
+        Alias t = report.generate("t");
+        Alias d = report.generate("d");
+        From accounts = report.from("accounts", r);
+        accounts.join(JointureType.INNER, totals, t).and(Condition.eq(new Column(t, "account_id"), new Column(r, "id")));
+        accounts.join(JointureType.CROSS, SqlQuery.of(SafeSqlUtils.fromConstant("SELECT now() AS at")), d);
+        report.select(r, "id").select(t, "total");
+        assertThat(report.toSafeSql()).hasSql("SELECT a.id, t.total FROM accounts a "
+                + "INNER JOIN (SELECT account_id, sum(amount) AS total FROM payments GROUP BY account_id) t ON t.account_id = a.id "
+                + "CROSS JOIN (SELECT now() AS at) d");
+    }
+    
     @Test
     public void testInnerJoinQuery() {
         SelectQuery qb = new SelectQuery();
@@ -140,4 +537,167 @@ public class SelectQueryTest {
         assertThat(qb.toSafeSql()).hasSql("SELECT 2::text").hasEmptyParameters();
     }
     
+    @Test
+    public void testDeepConditionTree() {
+        Condition condition = Condition.eq(new Column("a"), new Value(0));
+        for (int i = 1; i < 100_000; i++) {
+            Condition eq = Condition.eq(new Column("a"), new Value(i));
+            condition = i % 2 == 0 ? Condition.and(eq, condition) : Condition.or(eq, condition);
+        }
+        SelectQuery qb = new SelectQuery();
+        qb.select("id").from("table_name");
+        qb.and(condition);
+        
+        assertThat(qb.toSafeSql()).hasParameterCount(100_000);
+    }
+    
+    @Test
+    public void testDeepCompute() {
+        Operand operand = new Constant(0);
+        StringBuilder prefix = new StringBuilder();
+        StringBuilder suffix = new StringBuilder();
+        for (int i = 1; i < 100_000; i++) {
+            operand = Compute.add(operand, new Constant(1));
+            prefix.append('(');
+            suffix.append(" + 1)");
+        }
+        
+        assertThat(operand.toSafeSql()).hasSql(prefix + "0" + suffix);
+    }
+    
+    @Test
+    public void testConcatFlattening() {
+        Concat concat = new Concat(new Concat(new Column("a"), new Column("b")), new Concat(new Column("c"), new Column("d")));
+        
+        assertThat(concat.toSafeSql()).hasSql("a || b || c || d");
+    }
+    
+    @Test
+    public void testRenderingCache() {
+        SelectQuery sub = new SelectQuery();
+        sub.select("id").from("other");
+        SelectQuery qb = new SelectQuery();
+        From from = qb.select("id").from("table_name");
+        qb.from(sub, qb.generate("s"));
+        SafeSql first = qb.toSafeSql();
+        
+        assertThat(qb.toSafeSql()).isSameAs(first);
+        
+        qb.limit(10);
+        assertThat(qb.toSafeSql()).hasSql("SELECT id FROM table_name, (SELECT id FROM other) s LIMIT 10");
+        
+        from.innerJoin("joined").and(Condition.eq(new Column("id"), new Column("jid")));
+        assertThat(qb.toSafeSql()).hasSql("SELECT id FROM table_name INNER JOIN joined ON id = jid, (SELECT id FROM other) s LIMIT 10");
+        
+        sub.and(Condition.eq(new Column("name"), new Value("Lucie")));
+        assertThat(qb.toSafeSql())
+                .hasSql("SELECT id FROM table_name INNER JOIN joined ON id = jid, (SELECT id FROM other WHERE name = ?) s LIMIT 10")
+                .hasParameters("Lucie");
+    }
+    
+    @Test
+    public void testRenderingCacheWithModifiedSubquery() {
+        SelectQuery sub = new SelectQuery();
+        sub.select("id").from("other");
+        SelectQuery qb = new SelectQuery();
+        qb.select("id").from("table_name");
+        qb.and(Condition.in(new Column("id"), new QueryOperand(sub)));
+        assertThat(qb.toSafeSql()).hasSql("SELECT id FROM table_name WHERE id IN ((SELECT id FROM other))");
+        
+        sub.and(Condition.eq(new Column("name"), new Value("Lucie")));
+        assertThat(qb.toSafeSql())
+                .hasSql("SELECT id FROM table_name WHERE id IN ((SELECT id FROM other WHERE name = ?))")
+                .hasParameters("Lucie");
+    }
+    
+    @Test
+    public void testRenderingCacheWithModifiedGroup() {
+        ConditionGroup group = new ConditionGroup(LogicalOperator.OR);
+        group.add(Condition.eq(new Column("owner"), new Value(1)));
+        group.add(Condition.eq(new Column("author"), new Value(1)));
+        SelectQuery qb = new SelectQuery();
+        qb.select("id").from("table_name");
+        qb.and(group);
+        assertThat(qb.toSafeSql()).hasSql("SELECT id FROM table_name WHERE (owner = ? OR author = ?)");
+        
+        group.add(Condition.eq(new Column("reviewer"), new Value(1)));
+        assertThat(qb.toSafeSql())
+                .hasSql("SELECT id FROM table_name WHERE (owner = ? OR author = ? OR reviewer = ?)")
+                .hasParameters(1, 1, 1);
+    }
+    
+    @Test
+    public void testRenderingCacheWithModifiedJointureGroup() {
+        ConditionGroup group = new ConditionGroup(LogicalOperator.AND);
+        group.add(Condition.eq(new Column("id"), new Column("jid")));
+        group.add(Condition.isNull(new Column("deleted")));
+        SelectQuery qb = new SelectQuery();
+        qb.select("id").from("table_name").innerJoin("joined").and(group);
+        assertThat(qb.toSafeSql()).hasSql("SELECT id FROM table_name INNER JOIN joined ON (id = jid AND deleted IS NULL)");
+        
+        group.add(Condition.eq(new Column("kind"), new Value(2)));
+        assertThat(qb.toSafeSql())
+                .hasSql("SELECT id FROM table_name INNER JOIN joined ON (id = jid AND deleted IS NULL AND kind = ?)")
+                .hasParameters(2);
+    }
+    
+    @Test
+    public void testRenderingCacheReusesUnchangedClauses() {
+        int[] renderings = {0};
+        Operand counted = builder -> {
+            renderings[0]++;
+            builder.append("counted");
+        };
+        SelectQuery qb = new SelectQuery();
+        qb.select(counted).from("table_name");
+        qb.toSafeSql();
+        assertEquals(1, renderings[0]);
+        
+        qb.limit(10);
+        qb.and(Condition.eq(new Column("id"), new Value(1)));
+        assertThat(qb.toSafeSql()).hasSql("SELECT counted FROM table_name WHERE id = ? LIMIT 10");
+        assertEquals(1, renderings[0]);
+        
+        qb.with("t", new SelectQuery().select(new Constant(1)));
+        qb.from("other");
+        assertThat(qb.toSafeSql()).hasSql("WITH t AS (SELECT 1) SELECT counted FROM table_name, other WHERE id = ? LIMIT 10");
+        assertEquals(1, renderings[0]);
+        
+        Case<Condition> label = Case.create(Condition.isNull(new Column("name")), Literal.of("none"));
+        qb.select(label);
+        assertThat(qb.toSafeSql()).hasSql("WITH t AS (SELECT 1) SELECT counted, CASE WHEN name IS NULL THEN 'none' END FROM table_name, other WHERE id = ? LIMIT 10");
+        assertEquals(2, renderings[0]);
+        
+        label.setElse(Literal.of("some"));
+        assertThat(qb.toSafeSql())
+                .hasSql("WITH t AS (SELECT 1) SELECT counted, CASE WHEN name IS NULL THEN 'none' ELSE 'some' END FROM table_name, other WHERE id = ? LIMIT 10");
+    }
+    
+    @Test
+    public void testCompile() {
+        SelectQuery qb = new SelectQuery();
+        qb.select("id").from("table_name");
+        qb.and(Condition.eq(new Column("name"), slot("name")));
+        qb.and(Condition.eq(new Column("deleted"), new Value(false)));
+        qb.and(Condition.or(Condition.eq(new Column("owner"), slot("user")), Condition.eq(new Column("author"), slot("user"))));
+        CompiledQuery compiled = qb.compile();
+        
+        Map<String, Object> values = new HashMap<>();
+        values.put("name", "Lucie");
+        values.put("user", 42);
+        assertThat(compiled.bind(values))
+                .hasSql("SELECT id FROM table_name WHERE name = ? AND deleted = ? AND (owner = ? OR author = ?)")
+                .hasParameters("Lucie", false, 42, 42);
+        assertThat(compiled.bind("Anna", 7))
+                .hasSql(compiled.getSql())
+                .hasParameters("Anna", false, 7, 7);
+    }
+    
+    @Test(expected = BuilderException.class)
+    public void testCompileMissingSlot() {
+        SelectQuery qb = new SelectQuery();
+        qb.select("id").from("table_name").innerJoin("other").and(Condition.eq(new Column("oid"), slot("oid")));
+        qb.compile().bind(Collections.emptyMap());
+    }
+    
 }
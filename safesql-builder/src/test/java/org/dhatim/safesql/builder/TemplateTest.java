@@ -1,7 +1,9 @@
 package org.dhatim.safesql.builder;
 
-import static org.dhatim.safesql.assertion.Assertions.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.dhatim.safesql.assertion.Assertions.assertThat;
 
+import org.dhatim.safesql.SafeSqlBuilder;
 import org.junit.Test;
 
 public class TemplateTest {
@@ -41,4 +43,26 @@ public class TemplateTest {
         assertThat(operand.toSafeSql()).hasSql("'Hello'");
     }
     
+    @Test
+    public void testRender() {
+        Template template = Template.of("POSITION({1} IN {2})");
+        SafeSqlBuilder builder = new SafeSqlBuilder().append("SELECT ");
+        template.render(builder, Literal.of("searched"), new Value("string"));
+        assertThat(builder.toSafeSql()).hasSql("SELECT POSITION('searched' IN ?)").hasParameters("string");
+    }
+    
+    @Test
+    public void testCache() {
+        assertThat(Template.of("lower({1})")).isSameAs(Template.of("lower({1})"));
+    }
+    
+    @Test
+    public void testCacheEviction() {
+        Template first = Template.of("initcap({1})");
+        for (int i = 0; i < Template.MAX_CACHED_TEMPLATES; i++) {
+            Template.of("round({1}, " + i + ")");
+        }
+        assertThat(Template.of("initcap({1})")).isNotSameAs(first);
+    }
+    
 }
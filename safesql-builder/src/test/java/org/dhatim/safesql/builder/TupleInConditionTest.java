@@ -0,0 +1,28 @@
+package org.dhatim.safesql.builder;
+
+import static org.dhatim.safesql.assertion.Assertions.*;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.dhatim.safesql.SafeSql;
+import org.junit.Test;
+
+public class TupleInConditionTest {
+    
+    @Test
+    public void testInTuples() {
+        List<Column> columns = Arrays.asList(new Column("tenant_id"), new Column("external_id"));
+        List<Object[]> keys = Arrays.asList(new Object[] {1L, "a"}, new Object[] {2L, "b"});
+        
+        SafeSql unnest = Condition.inTuples(columns, Arrays.asList("int8", "text"), keys.stream()).toSafeSql();
+        assertThat(unnest).hasSql("(tenant_id, external_id) IN (SELECT * FROM unnest(?::int8[], ?::text[]))");
+        assertTrue(Arrays.equals(new Long[] {1L, 2L}, (Long[]) unnest.getParameters()[0]));
+        
+        assertThat(Condition.inTuples(columns, keys.stream()).negate().toSafeSql())
+                .hasSql("(tenant_id, external_id) NOT IN (VALUES (?, ?), (?, ?))").hasParameters(1L, "a", 2L, "b");
+        assertThat(Condition.inTuples(columns, Stream.empty()).toSafeSql()).hasSql("?").hasParameters(false);
+    }
+    
+}
@@ -0,0 +1,42 @@
+package org.dhatim.safesql.builder;
+
+import static org.dhatim.safesql.assertion.Assertions.*;
+
+import org.junit.Test;
+
+public class UpdateQueryTest {
+    
+    @Test
+    public void testUpdate() {
+        UpdateQuery update = new UpdateQuery(null, "users", null);
+        Alias c = update.generate("c");
+        update.set("company_name", new Column(c, "name")).and(Condition.eq(new Column(c, "id"), new Column("company_id")));
+        update.from("companies", c);
+        update.returning("id");
+        assertThat(update.toSafeSql()).hasSql("UPDATE users SET company_name = c.name FROM companies c WHERE c.id = company_id RETURNING id");
+    }
+    
+    @Test
+    public void testJoinedUpdate() {
+        BuilderContext context = new BuilderContext();
+        Alias e = context.generate("e");
+        Alias c = context.generate("c");
+        Alias k = context.generate("k");
+        UpdateQuery update = new UpdateQuery(context, null, "employees", e);
+        update.set("country_name", new Column(k, "name"));
+        update.from("companies", c);
+        update.leftJoin("countries", k).and(Condition.eq(new Column(k, "id"), new Column(c, "country_id")));
+        update.and(Condition.eq(new Column(c, "id"), new Column(e, "company_id")));
+        assertThat(update.toSafeSql()).hasSql("UPDATE employees e SET country_name = k.name FROM companies c "
+                + "LEFT JOIN countries k ON k.id = c.country_id WHERE c.id = e.company_id");
+    }
+    
+    @Test(expected = BuilderException.class)
+    public void testJointureWithoutFrom() {
+        UpdateQuery update = new UpdateQuery("employees");
+        update.set("country_name", new Column("name"));
+        update.innerJoin("countries");
+        update.toSafeSql();
+    }
+    
+}
@@ -0,0 +1,79 @@
+package org.dhatim.safesql.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Objects;
+import org.dhatim.safesql.SafeSql;
+import org.dhatim.safesql.SafeSqlizable;
+
+/**
+ * Executes a statement processing a bounded number of rows, like a batched delete, again and again until it
+ * processes no row.
+ * <p>
+ * When the connection is not in auto-commit mode, each execution is committed, so that locks are held for one
+ * batch only. An optional pause between executions leaves time to replicas and concurrent transactions.
+ */
+public final class BatchedExecution {
+
+    private BatchedExecution() {
+    }
+
+    /**
+     * Executes a statement until it processes no row.
+     *
+     * @param connection connection to the database
+     * @param statement statement to execute
+     * @return the total number of rows processed
+     * @throws SQLException if an execution fails
+     */
+    public static long executeUntilNoRow(Connection connection, SafeSqlizable statement) throws SQLException {
+        return executeUntilNoRow(connection, statement, Duration.ZERO);
+    }
+
+    /**
+     * Executes a statement until it processes no row, pausing between executions.
+     *
+     * @param connection connection to the database
+     * @param statement statement to execute
+     * @param pause pause between two executions
+     * @return the total number of rows processed
+     * @throws SQLException if an execution fails, or if the thread is interrupted while pausing
+     */
+    public static long executeUntilNoRow(Connection connection, SafeSqlizable statement, Duration pause) throws SQLException {
+        Objects.requireNonNull(pause, "Pause must be not null");
+        SafeSql sql = statement.toSafeSql();
+        Object[] parameters = sql.getParameters();
+        long total = 0;
+        try (PreparedStatement ps = connection.prepareStatement(sql.asSql())) {
+            for (int i = 0; i < parameters.length; i++) {
+                ps.setObject(i + 1, parameters[i]);
+            }
+            while (true) {
+                int count = ps.executeUpdate();
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+                total += count;
+                if (count == 0) {
+                    return total;
+                }
+                pause(pause);
+            }
+        }
+    }
+
+    private static void pause(Duration pause) throws SQLException {
+        if (pause.isZero() || pause.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(pause.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted between two batches", e);
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package org.dhatim.safesql.jdbc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import org.dhatim.safesql.SafeSqlBuilder;
+import org.junit.Test;
+
+public class BatchedExecutionTest {
+
+    @Test
+    public void testExecuteUntilNoRow() throws Exception {
+        Deque<Integer> counts = new ArrayDeque<>(Arrays.asList(100, 100, 42, 0));
+        List<String> calls = new ArrayList<>();
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class },
+                (proxy, method, args) -> {
+                    calls.add(method.getName() + (args == null ? "" : Arrays.toString(args)));
+                    return method.getName().equals("executeUpdate") ? counts.pop() : null;
+                });
+        Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "prepareStatement":
+                        calls.add("prepare " + args[0]);
+                        return statement;
+                    case "getAutoCommit":
+                        return false;
+                    default:
+                        calls.add(method.getName());
+                        return null;
+                    }
+                });
+
+        SafeSqlBuilder delete = new SafeSqlBuilder("DELETE FROM t WHERE ctid = ANY(ARRAY(SELECT ctid FROM t LIMIT ").param(100).append("))");
+        assertThat(BatchedExecution.executeUntilNoRow(connection, delete)).isEqualTo(242);
+        assertThat(calls).containsExactly("prepare DELETE FROM t WHERE ctid = ANY(ARRAY(SELECT ctid FROM t LIMIT ?))", "setObject[1, 100]",
+                "executeUpdate", "commit", "executeUpdate", "commit", "executeUpdate", "commit", "executeUpdate", "commit", "close");
+    }
+
+}
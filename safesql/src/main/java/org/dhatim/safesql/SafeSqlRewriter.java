@@ -1,17 +1,11 @@
 package org.dhatim.safesql;
 
-import java.util.StringTokenizer;
-
 public class SafeSqlRewriter {
     
     public interface ParameterWriter {
         void writeTo(SafeSqlBuilder sb, Object oldParameter);
     }
     
-    private static final int STATE_0 = 0;
-    private static final int STATE_STRING = 1;
-    private static final int STATE_IDENT = 2;
-    
     private ParameterWriter writer;
     
     public SafeSqlRewriter(ParameterWriter writer) {
@@ -28,41 +22,23 @@ public class SafeSqlRewriter {
     
     public void writeTo(SafeSql value, SafeSqlBuilder sb) {
         Object[] parameters = value.getParameters();
+        String sql = value.asSql();
+        SqlLexer lexer = new SqlLexer();
         int index = 0;
-        StringTokenizer tokenizer = new StringTokenizer(value.asSql(), "\"'?", true);
-        int state = 0;
-        while (tokenizer.hasMoreTokens()) {
-            String token = tokenizer.nextToken();
-            switch (token) {
-            case "\"":
-                if (state == STATE_0) {
-                    state = STATE_IDENT;
-                } else if (state == STATE_IDENT) {
-                    state = STATE_0;
-                }
-                sb.append(token);
-                break;
-            case "'":
-                if (state == STATE_0) {
-                    state = STATE_STRING;
-                } else if (state == STATE_STRING) {
-                    state = STATE_0;
+        int start = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char ch = sql.charAt(i);
+            if (lexer.accept(ch) == SqlLexer.CODE && ch == '?') {
+                if (start < i) {
+                    sb.append(sql.substring(start, i));
                 }
-                sb.append(token);
-                break;
-            case "?":
-                if (state != STATE_0) {
-                    sb.append(token);
-                } else {
-                    Object parameter = parameters[index++];
-                    writer.writeTo(sb, parameter);
-                }
-                break;
-            default:
-                sb.append(token);
-                break;
+                writer.writeTo(sb, parameters[index++]);
+                start = i + 1;
             }
         }
+        if (start < sql.length()) {
+            sb.append(sql.substring(start));
+        }
     }
     
     public SafeSql write(SafeSql value) {
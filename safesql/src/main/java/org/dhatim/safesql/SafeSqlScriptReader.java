@@ -0,0 +1,226 @@
+package org.dhatim.safesql;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Splits a SQL script file into statements.
+ * <p>
+ * The file is memory-mapped by windows and decoded through a small reusable buffer, so only the statement being read
+ * is held in memory whatever the size of the file. Statements are separated by <code>;</code> outside of strings,
+ * quoted identifiers, dollar-quoted strings and comments. Blank statements are skipped.
+ */
+public class SafeSqlScriptReader implements Closeable {
+
+    @FunctionalInterface
+    public interface BatchHandler<E extends Exception> {
+        void handle(List<SafeSql> batch) throws E;
+    }
+
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int CHAR_BUFFER_SIZE = 8192;
+    private static final int MIN_WINDOW_REMAINING = 16;
+
+    private final FileChannel channel;
+    private final CharsetDecoder decoder;
+    private final long size;
+    private final int windowSize;
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+
+    private final SqlLexer lexer = new SqlLexer();
+    private final StringBuilder statement = new StringBuilder();
+    private int significantChars;
+
+    private MappedByteBuffer window;
+    private long windowPosition;
+    private boolean endOfFile;
+
+    public SafeSqlScriptReader(FileChannel channel) throws IOException {
+        this(channel, StandardCharsets.UTF_8, DEFAULT_WINDOW_SIZE);
+    }
+
+    public SafeSqlScriptReader(FileChannel channel, Charset charset, int windowSize) throws IOException {
+        Objects.requireNonNull(channel, "The channel must not be null");
+        Objects.requireNonNull(charset, "The charset must not be null");
+        if (windowSize < 2 * MIN_WINDOW_REMAINING) {
+            throw new IllegalArgumentException("Window size must be " + 2 * MIN_WINDOW_REMAINING + " bytes or more");
+        }
+        this.channel = channel;
+        this.decoder = charset.newDecoder();
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        chars.flip();
+    }
+
+    /**
+     * Reads the next statement, without its terminating <code>;</code>.
+     *
+     * @return the next statement, or {@code null} at the end of the file
+     * @throws IOException if an I/O error occurs
+     */
+    public SafeSql next() throws IOException {
+        while (chars.hasRemaining() || fill()) {
+            while (chars.hasRemaining()) {
+                char ch = chars.get();
+                int kind = lexer.accept(ch);
+                if (kind == SqlLexer.CODE && ch == ';') {
+                    SafeSql sql = finishStatement();
+                    if (sql != null) {
+                        return sql;
+                    }
+                } else {
+                    statement.append(ch);
+                    if (kind == SqlLexer.COMMENT_START) {
+                        significantChars--;
+                    } else if (kind != SqlLexer.COMMENT && !Character.isWhitespace(ch)) {
+                        significantChars++;
+                    }
+                }
+            }
+        }
+        return finishStatement();
+    }
+
+    /**
+     * Returns a lazy stream of the remaining statements. Closing the stream closes this reader.
+     *
+     * @return a stream of statements
+     */
+    public Stream<SafeSql> statements() {
+        Spliterator<SafeSql> spliterator = new Spliterators.AbstractSpliterator<SafeSql>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super SafeSql> action) {
+                SafeSql sql;
+                try {
+                    sql = next();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (sql == null) {
+                    return false;
+                }
+                action.accept(sql);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Hands the remaining statements to the handler by batches, in order. The last batch may be smaller.
+     *
+     * @param <E> exception thrown by the handler
+     * @param batchSize maximum number of statements in a batch
+     * @param handler handler receiving each batch
+     * @return the number of statements read
+     * @throws IOException if an I/O error occurs
+     * @throws E if the handler fails
+     */
+    public <E extends Exception> long forEachBatch(int batchSize, BatchHandler<E> handler) throws IOException, E {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        List<SafeSql> batch = new ArrayList<>(batchSize);
+        long count = 0;
+        SafeSql sql;
+        while ((sql = next()) != null) {
+            batch.add(sql);
+            count++;
+            if (batch.size() == batchSize) {
+                handler.handle(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            handler.handle(batch);
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private SafeSql finishStatement() {
+        SafeSql sql = significantChars > 0 ? SafeSqlUtils.fromConstant(statement.toString().trim()) : null;
+        statement.setLength(0);
+        significantChars = 0;
+        return sql;
+    }
+
+    private boolean fill() throws IOException {
+        if (endOfFile) {
+            return false;
+        }
+        chars.clear();
+        try {
+            while (true) {
+                long position = windowPosition + (window == null ? 0 : window.position());
+                boolean lastWindow = window != null && windowPosition + window.limit() >= size;
+                if (window == null || (!lastWindow && window.remaining() < MIN_WINDOW_REMAINING)) {
+                    // Remap from the first unconsumed byte, so that a character is never split between two windows
+                    long length = Math.min(windowSize, size - position);
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    windowPosition = position;
+                    lastWindow = position + length >= size;
+                }
+                CoderResult result = decoder.decode(window, chars, lastWindow);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                if (lastWindow && !window.hasRemaining()) {
+                    decoder.flush(chars);
+                    endOfFile = true;
+                    return chars.position() > 0;
+                }
+                if (chars.position() > 0) {
+                    return true;
+                }
+            }
+        } finally {
+            chars.flip();
+        }
+    }
+
+    public static SafeSqlScriptReader open(Path path) throws IOException {
+        return new SafeSqlScriptReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Returns a lazy stream of the statements of a script file. The stream must be closed to release the file.
+     *
+     * @param path script file
+     * @return a stream of statements
+     * @throws IOException if the file cannot be opened
+     */
+    public static Stream<SafeSql> statements(Path path) throws IOException {
+        return open(path).statements();
+    }
+
+}
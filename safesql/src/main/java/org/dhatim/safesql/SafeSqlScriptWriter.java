@@ -0,0 +1,159 @@
+package org.dhatim.safesql;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Writes literalized statements to a channel as a <code>;</code>-terminated SQL script.
+ * <p>
+ * Statements are encoded into a single reusable buffer which is written to the channel only when it is full, so
+ * streaming a large number of statements never holds more than one statement and one buffer in memory. When a chunk
+ * size is set with {@link #parallel(int)}, statements are literalized in parallel by chunks and still written in
+ * their original order.
+ */
+public class SafeSqlScriptWriter implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final String TERMINATOR = ";\n";
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer buffer;
+
+    private int chunkSize;
+
+    public SafeSqlScriptWriter(WritableByteChannel channel) {
+        this(channel, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+    }
+
+    public SafeSqlScriptWriter(WritableByteChannel channel, Charset charset, int bufferSize) {
+        Objects.requireNonNull(channel, "The channel must not be null");
+        Objects.requireNonNull(charset, "The charset must not be null");
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.channel = channel;
+        this.encoder = charset.newEncoder();
+        this.buffer = ByteBuffer.allocate(Math.max(bufferSize, (int) Math.ceil(encoder.maxBytesPerChar())));
+    }
+
+    /**
+     * Literalizes statements in parallel by chunks of the given size. A size of 0 restores sequential literalization.
+     *
+     * @param chunkSize number of statements literalized together
+     * @return a reference to this object.
+     */
+    public SafeSqlScriptWriter parallel(int chunkSize) {
+        if (chunkSize < 0) {
+            throw new IllegalArgumentException("Chunk size must not be negative");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public SafeSqlScriptWriter write(SafeSql sql) throws IOException {
+        writeStatement(sql.asString());
+        return this;
+    }
+
+    public SafeSqlScriptWriter write(SafeSqlizable sqlizable) throws IOException {
+        writeStatement(literalize(sqlizable));
+        return this;
+    }
+
+    /**
+     * Writes all statements of the stream, in encounter order.
+     *
+     * @param statements statements to write
+     * @return the number of written statements
+     * @throws IOException if an I/O error occurs
+     */
+    public long writeAll(Stream<? extends SafeSqlizable> statements) throws IOException {
+        Iterator<? extends SafeSqlizable> iterator = statements.iterator();
+        long count = 0;
+        if (chunkSize == 0) {
+            while (iterator.hasNext()) {
+                write(iterator.next());
+                count++;
+            }
+        } else {
+            List<SafeSqlizable> chunk = new ArrayList<>(chunkSize);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    String[] literals = chunk.parallelStream().map(SafeSqlScriptWriter::literalize).toArray(String[]::new);
+                    for (String literal : literals) {
+                        writeStatement(literal);
+                    }
+                    count += literals.length;
+                    chunk.clear();
+                }
+            }
+        }
+        return count;
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeStatement(String literal) throws IOException {
+        encode(CharBuffer.wrap(literal), false);
+        encode(CharBuffer.wrap(TERMINATOR), true);
+        while (encoder.flush(buffer).isOverflow()) {
+            flush();
+        }
+        encoder.reset();
+    }
+
+    private void encode(CharBuffer chars, boolean endOfInput) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, endOfInput);
+            if (result.isOverflow()) {
+                flush();
+            } else if (result.isError()) {
+                result.throwException();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static String literalize(SafeSqlizable sqlizable) {
+        return sqlizable.toSafeSql().asString();
+    }
+
+    public static SafeSqlScriptWriter open(Path path) throws IOException {
+        return new SafeSqlScriptWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+}
@@ -0,0 +1,158 @@
+package org.dhatim.safesql;
+
+/**
+ * Incremental lexer that tells, one character at a time, whether SQL text is plain code, quoted or commented.
+ * <p>
+ * It knows PostgreSQL string literals (including <code>E'...'</code> backslash escapes), quoted identifiers,
+ * dollar-quoted strings, line comments and nested block comments. Characters are fed in order with
+ * {@link #accept(char)}, so the same instance can lex a string or a file read by chunks.
+ */
+final class SqlLexer {
+
+    /** The character is plain SQL code */
+    static final int CODE = 0;
+    /** The character belongs to a string, a quoted identifier or a dollar-quoted string, delimiters included */
+    static final int QUOTED = 1;
+    /** The character belongs to a comment */
+    static final int COMMENT = 2;
+    /** The character opens a comment, and the previous character, reported as code, belongs to that comment */
+    static final int COMMENT_START = 3;
+
+    private static final int STATE_CODE = 0;
+    private static final int STATE_STRING = 1;
+    private static final int STATE_ESCAPE_STRING = 2;
+    private static final int STATE_IDENT = 3;
+    private static final int STATE_LINE_COMMENT = 4;
+    private static final int STATE_BLOCK_COMMENT = 5;
+    private static final int STATE_DOLLAR_TAG = 6;
+    private static final int STATE_DOLLAR = 7;
+
+    private final StringBuilder tag = new StringBuilder();
+
+    private int state = STATE_CODE;
+    private char previous;
+    private char beforePrevious;
+    private boolean escapeString;
+    private boolean backslash;
+    private int commentDepth;
+    private int tagMatch;
+
+    int accept(char ch) {
+        switch (state) {
+            case STATE_CODE:
+                return acceptCode(ch);
+            case STATE_STRING:
+                if (ch == '\'') {
+                    leave(ch);
+                }
+                return QUOTED;
+            case STATE_ESCAPE_STRING:
+                if (backslash) {
+                    backslash = false;
+                } else if (ch == '\\') {
+                    backslash = true;
+                } else if (ch == '\'') {
+                    leave(ch);
+                }
+                return QUOTED;
+            case STATE_IDENT:
+                if (ch == '"') {
+                    leave(ch);
+                }
+                return QUOTED;
+            case STATE_LINE_COMMENT:
+                if (ch == '\n') {
+                    leave(ch);
+                }
+                return COMMENT;
+            case STATE_BLOCK_COMMENT:
+                if (previous == '*' && ch == '/') {
+                    if (--commentDepth == 0) {
+                        leave(' ');
+                    } else {
+                        previous = 0;
+                    }
+                } else if (previous == '/' && ch == '*') {
+                    commentDepth++;
+                    previous = 0;
+                } else {
+                    previous = ch;
+                }
+                return COMMENT;
+            case STATE_DOLLAR_TAG:
+                if (ch == '$') {
+                    state = STATE_DOLLAR;
+                    tagMatch = 0;
+                    return QUOTED;
+                } else if (Character.isLetter(ch) || ch == '_' || (tag.length() > 0 && Character.isDigit(ch))) {
+                    tag.append(ch);
+                    return QUOTED;
+                } else {
+                    // Not a dollar quote (a positional parameter like $1 for example)
+                    state = STATE_CODE;
+                    previous = tag.length() == 0 ? '$' : tag.charAt(tag.length() - 1);
+                    beforePrevious = 0;
+                    return acceptCode(ch);
+                }
+            case STATE_DOLLAR:
+                if (ch == expectedClosingChar()) {
+                    if (++tagMatch == tag.length() + 2) {
+                        leave(ch);
+                    }
+                } else {
+                    tagMatch = ch == '$' ? 1 : 0;
+                }
+                return QUOTED;
+            default:
+                throw new IllegalStateException("Unknown state " + state);
+        }
+    }
+
+    boolean isInCode() {
+        return state == STATE_CODE;
+    }
+
+    private int acceptCode(char ch) {
+        int result = CODE;
+        if (previous == '-' && ch == '-') {
+            state = STATE_LINE_COMMENT;
+            result = COMMENT_START;
+        } else if (previous == '/' && ch == '*') {
+            state = STATE_BLOCK_COMMENT;
+            commentDepth = 1;
+            ch = 0;
+            result = COMMENT_START;
+        } else if (ch == '\'') {
+            escapeString = (previous == '\'' && escapeString)
+                    || ((previous == 'E' || previous == 'e') && !isIdentifierChar(beforePrevious));
+            state = escapeString ? STATE_ESCAPE_STRING : STATE_STRING;
+            backslash = false;
+            result = QUOTED;
+        } else if (ch == '"') {
+            state = STATE_IDENT;
+            result = QUOTED;
+        } else if (ch == '$' && !isIdentifierChar(previous)) {
+            state = STATE_DOLLAR_TAG;
+            tag.setLength(0);
+            result = QUOTED;
+        }
+        beforePrevious = previous;
+        previous = ch;
+        return result;
+    }
+
+    private void leave(char last) {
+        state = STATE_CODE;
+        beforePrevious = 0;
+        previous = last;
+    }
+
+    private char expectedClosingChar() {
+        return tagMatch == 0 || tagMatch == tag.length() + 1 ? '$' : tag.charAt(tagMatch - 1);
+    }
+
+    private static boolean isIdentifierChar(char ch) {
+        return Character.isLetterOrDigit(ch) || ch == '_' || ch == '$';
+    }
+
+}
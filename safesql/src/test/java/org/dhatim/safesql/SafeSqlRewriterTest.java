@@ -25,5 +25,16 @@ public class SafeSqlRewriterTest {
                 .hasSql("SELECT * FROM table WHERE \"FILE\" = (NULL) AND name = ?")
                 .hasParameters("Hello");
     }
+    
+    @Test
+    public void testRewriteIgnoresQuotedAndCommented() {
+        SafeSql sql = new SafeSqlBuilder()
+               .append("SELECT '?', $$?$$, \"?\" -- ?\n, ").param(1).append(" /* ? */")
+               .toSafeSql();
+        
+        Assertions.assertThat(SafeSqlUtils.literalize(sql))
+                .hasSql("SELECT '?', $$?$$, \"?\" -- ?\n, 1 /* ? */")
+                .hasEmptyParameters();
+    }
 
 }
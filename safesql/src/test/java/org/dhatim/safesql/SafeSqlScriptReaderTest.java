@@ -0,0 +1,58 @@
+package org.dhatim.safesql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SafeSqlScriptReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSplit() throws IOException {
+        Path path = write("-- header; comment\n"
+                + "INSERT INTO t VALUES ('a;b', \"c;d\");\n"
+                + "CREATE FUNCTION f() RETURNS int AS $body$ SELECT 1; $body$ LANGUAGE sql;\n"
+                + "SELECT E'it\\'s;', $$;$$, $1 /* block; /* nested; */ still; */ FROM t;\n"
+                + " ; /* trailing */\n");
+        try (Stream<SafeSql> statements = SafeSqlScriptReader.statements(path)) {
+            assertThat(statements.map(SafeSql::asSql).collect(Collectors.toList())).containsExactly(
+                    "-- header; comment\nINSERT INTO t VALUES ('a;b', \"c;d\")",
+                    "CREATE FUNCTION f() RETURNS int AS $body$ SELECT 1; $body$ LANGUAGE sql",
+                    "SELECT E'it\\'s;', $$;$$, $1 /* block; /* nested; */ still; */ FROM t");
+        }
+    }
+
+    @Test
+    public void testSmallWindows() throws IOException {
+        String script = IntStream.range(0, 200).mapToObj(i -> "SELECT 'été " + i + "'").collect(Collectors.joining(";\n"));
+        Path path = write(script);
+        List<List<SafeSql>> batches = new ArrayList<>();
+        try (SafeSqlScriptReader reader = new SafeSqlScriptReader(FileChannel.open(path), StandardCharsets.UTF_8, 33)) {
+            assertThat(reader.forEachBatch(64, batches::add)).isEqualTo(200);
+        }
+        assertThat(batches).hasSize(4);
+        assertThat(batches.get(3)).hasSize(8);
+        assertThat(batches.get(3).get(7).asSql()).isEqualTo("SELECT 'été 199'");
+    }
+
+    private Path write(String content) throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+}
@@ -0,0 +1,50 @@
+package org.dhatim.safesql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SafeSqlScriptWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAll() throws IOException {
+        Path path = folder.newFile().toPath();
+        try (SafeSqlScriptWriter writer = SafeSqlScriptWriter.open(path)) {
+            writer.writeAll(Stream.of(
+                    sb -> sb.append("INSERT INTO t VALUES (").param(1).append(", ").param("l'été").append(")"),
+                    sb -> sb.append("DELETE FROM t")));
+        }
+        assertThat(new String(Files.readAllBytes(path), StandardCharsets.UTF_8))
+                .isEqualTo("INSERT INTO t VALUES (1, 'l''été');\nDELETE FROM t;\n");
+    }
+
+    @Test
+    public void testParallelKeepsOrder() throws IOException {
+        Path sequential = folder.newFile().toPath();
+        Path parallel = folder.newFile().toPath();
+        try (SafeSqlScriptWriter writer = new SafeSqlScriptWriter(Files.newByteChannel(sequential, StandardOpenOption.WRITE), StandardCharsets.UTF_8, 16)) {
+            assertThat(writer.writeAll(statements())).isEqualTo(1000);
+        }
+        try (SafeSqlScriptWriter writer = SafeSqlScriptWriter.open(parallel).parallel(64)) {
+            assertThat(writer.writeAll(statements())).isEqualTo(1000);
+        }
+        assertThat(Files.readAllBytes(parallel)).isEqualTo(Files.readAllBytes(sequential));
+    }
+
+    private static Stream<SafeSqlizable> statements() {
+        return IntStream.range(0, 1000).mapToObj(i -> sb -> sb.append("SELECT ").param(i).append(", ").param("v" + i));
+    }
+
+}